@@ -0,0 +1,174 @@
+/**
+ * File: BitBoard.java
+ * Description: the moves of a leaper on a small board, as bit masks
+ * @author Zhiwei Jia
+ */
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class Name: BitBoard
+ * Description: a board of at most 64 cells, where a set of cells is a long
+ *              with the bit of cell row * colSize + col, and the cells a
+ *              leaper reaches from each cell are precomputed as such a set,
+ *              from its MoveGraph; the tables are built once for each size
+ *              of board and leaper and shared; the cells blocked in the
+ *              graph are left out of all and of every set of moves, so a
+ *              search on the table never visits them
+ */
+public final class BitBoard {
+
+    // the largest number of cells that fits into a long
+    public static final int MAX_CELLS = 64;
+
+    // the tables built so far, by the graph of the board
+    private static final ConcurrentHashMap<MoveGraph, BitBoard> BOARDS =
+            new ConcurrentHashMap<>();
+
+    // some value relevant to the board
+    public final int rowSize;
+    public final int colSize;
+    public final int numCell;
+    public final Leaper leaper;
+
+    // the set of all free cells of the board, and their number
+    public final long all;
+    public final int numFree;
+
+    // the cells of the color of the corners, row + col being even
+    private final long even;
+
+    // the cells reachable from each cell by one move
+    private final long[] moves;
+
+    // for each of the eight moves, the shift of the cell indices and the
+    // cells the move does not leave the board from
+    private final int[] shifts = new int[8];
+    private final long[] sources = new long[8];
+
+    /**
+     * Method to return the table of the knight for a size of board
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @return the table
+     * @throws IllegalArgumentException if the board has more than 64 cells
+     */
+    public static BitBoard of(int rowSize, int colSize)
+            throws IllegalArgumentException {
+        if (rowSize < 1 || colSize < 1 || (long) rowSize * colSize > MAX_CELLS)
+            throw new IllegalArgumentException(rowSize + "x" + colSize);
+        return of(MoveGraph.of(rowSize, colSize, Leaper.KNIGHT));
+    }
+
+    /**
+     * Method to return the table of the moves of a graph, which is shared
+     * for boards of at most 64 cells with no cell blocked
+     * @param graph the graph
+     * @return the table
+     * @throws IllegalArgumentException if the board has more than 64 cells
+     */
+    public static BitBoard of(MoveGraph graph)
+            throws IllegalArgumentException {
+        if (graph.numCell > MAX_CELLS)
+            throw new IllegalArgumentException(graph.rowSize + "x"
+                    + graph.colSize);
+        if (graph.numFree < graph.numCell)
+            return new BitBoard(graph);
+        return BOARDS.computeIfAbsent(graph, BitBoard::new);
+    }
+
+    /**
+     * Constructor with the graph of the moves, which builds the tables
+     * @param graph the graph
+     */
+    private BitBoard(MoveGraph graph) {
+        this.rowSize = graph.rowSize;
+        this.colSize = graph.colSize;
+        this.numCell = graph.numCell;
+        this.leaper = graph.leaper;
+        long cells = numCell == 64 ? -1L : (1L << numCell) - 1;
+        long color = 0;
+        moves = new long[numCell];
+        for (int cell = 0; cell < numCell; cell++) {
+            if (graph.isBlocked(cell))
+                cells &= ~(1L << cell);
+            if ((cell / colSize + cell % colSize) % 2 == 0)
+                color |= 1L << cell;
+            for (int e = graph.first[cell]; e < graph.first[cell + 1]; e++) {
+                moves[cell] |= 1L << graph.next[e];
+                sources[graph.move[e]] |= 1L << cell;
+            }
+        }
+        for (int m = 0; m < 8; m++)
+            shifts[m] = leaper.rowMove(m) * colSize + leaper.colMove(m);
+        all = cells;
+        numFree = Long.bitCount(cells);
+        even = color;
+    }
+
+    /**
+     * Method to check whether a tour may start from a cell by the colors:
+     * a leaper changing color every move visits as many free cells of
+     * each color, or one more of the color it starts on
+     * @param cell the starting cell
+     * @return whether it may
+     */
+    public boolean isBalancedFrom(int cell) {
+        if (!leaper.changesColor())
+            return true;
+        long same = (even & 1L << cell) != 0 ? even : ~even;
+        int diff = Long.bitCount(all & same) - Long.bitCount(all & ~same);
+        return diff == 0 || diff == 1;
+    }
+
+    /**
+     * Method to return the cells reachable from a cell by one move
+     * @param cell the cell
+     * @return the set of cells
+     */
+    public long moves(int cell) {
+        return moves[cell];
+    }
+
+    /**
+     * Method to return the cells reachable by one move from any of the 
+     * given cells, by shifting the whole set once for each move
+     * @param cells the set of cells
+     * @return the set of cells reachable
+     */
+    public long spread(long cells) {
+        long result = 0;
+        for (int m = 0; m < 8; m++) {
+            long from = cells & sources[m];
+            result |= shifts[m] > 0 ? from << shifts[m] : from >>> -shifts[m];
+        }
+        return result;
+    }
+
+    /**
+     * Method to check whether the given cells are connected by moves 
+     * within themselves, by a flood fill from the seed
+     * @param cells the set of cells
+     * @param seed the cells to fill from, a subset of cells
+     * @return whether all cells are reached from the seed
+     */
+    public boolean isConnected(long cells, long seed) {
+        long reach = seed;
+        while (true) {
+            long next = reach | (spread(reach) & cells);
+            if (next == reach)
+                return reach == cells;
+            reach = next;
+        }
+    }
+
+    /**
+     * Method to return the number of free cells reachable from a cell
+     * @param cell the cell
+     * @param visited the set of cells visited
+     * @return the onward degree
+     */
+    public int degree(int cell, long visited) {
+        return Long.bitCount(moves[cell] & ~visited);
+    }
+}
@@ -0,0 +1,355 @@
+/**
+ * File: BitSearch.java
+ * Description: the backtracking search on a BitBoard
+ * @author Zhiwei Jia
+ */
+
+/**
+ * Class Name: BitSearch
+ * Description: the backtracking search of KnightTour for boards of at most
+ *              64 cells, where the visited cells are a single long and the
+ *              onward degrees are counted by Long.bitCount; all arrays are
+ *              made once, so the search loop does not create any object;
+ *              a move is dropped at once when it leaves a free cell with no
+ *              way in, more than one free cell that has to be the last one,
+ *              or the free cells in more than one piece; the first two are
+ *              kept up to date from the cells around the move, while the
+ *              pieces are found again at every node, by a flood fill of
+ *              the free cells a few word operations a step; once a search
+ *              turns out hard, the states found to have no tour are kept
+ *              in a TranspositionTable and never explored again; the same
+ *              search can also count all tours extending a path; the
+ *              tour visits the free cells of the board only
+ */
+public final class BitSearch {
+
+    // the number of nodes explored before a table is made
+    static final long TABLE_AFTER_NODES = 1 << 14;
+
+    // the least number of free cells of a state put into the table, as
+    // smaller subtrees are cheaper to explore again than to look up
+    static final int TABLE_MIN_FREE = 10;
+
+    private final BitBoard board;
+
+    // the algorithm object this search reports to
+    private final KnightTour owner;
+
+    // the candidates of the next move not tried yet, at each depth
+    private final long[] rest;
+
+    // the free cells with only one free neighbor or the current cell as
+    // neighbor, which can only be the last cell of the tour, at each depth
+    private final long[] ends;
+
+    // the Zobrist hash of the state at each depth
+    private final long[] hash;
+
+    // the states with no tour, kept across the calls of this object
+    private TranspositionTable table;
+
+    // the counters since the last report
+    private final SearchStats stats;
+
+    /**
+     * Constructor with the board and the algorithm object
+     * @param board the board
+     * @param owner the algorithm object, which is asked whether to stop and
+     *        told the progress
+     */
+    public BitSearch(BitBoard board, KnightTour owner) {
+        this.board = board;
+        this.owner = owner;
+        rest = new long[board.numCell];
+        ends = new long[board.numCell];
+        hash = new long[board.numCell];
+        stats = new SearchStats(board.numCell);
+    }
+
+    /**
+     * Method to return the table of states with no tour
+     * @return the table, or null if no search has needed it yet
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Method to extend a path into a full tour by backtracking, trying the
+     * next moves in the order of their onward degree; the cells already in
+     * the path are never backtracked
+     * @param path the path, with its first len cells placed
+     * @param len the length of the given path, at least 1
+     * @return whether a full tour is found, in which case it is in path
+     */
+    public boolean search(int[] path, int len) {
+        return search(path, len, null);
+    }
+
+    /**
+     * Method to extend a path into a full tour by backtracking, or to go
+     * on with a search from a checkpoint, where the moves not tried yet at
+     * each depth are tried in the same order as they would have been
+     * @param path the path, with its first len cells placed
+     * @param len the length of the given path, at least 1
+     * @param from the checkpoint to go on from, or null to start anew
+     * @return whether a full tour is found, in which case it is in path
+     */
+    public boolean search(int[] path, int len, SearchCheckpoint from) {
+        int numFree = board.numFree;
+        int colSize = board.colSize;
+        int floor = len - 1;
+        int d = floor;
+        if (from != null) {
+            System.arraycopy(from.path, 0, path, 0, from.depth + 1);
+            floor = from.floor;
+            d = from.depth;
+        }
+
+        // the state at each depth up to the current one
+        long visited = 0;
+        long h = 0;
+        for (int k = 0; k <= d; k++) {
+            visited |= 1L << path[k];
+            h ^= TranspositionTable.visitedKey(path[k]);
+            if (k < floor)
+                continue;
+            long moves = board.moves(path[k]) & ~visited;
+            if (from != null) {
+                long keep = 0;
+                for (long c = moves; c != 0; c &= c - 1) {
+                    int cell = Long.numberOfTrailingZeros(c);
+                    if (SearchCheckpoint.hasMove(from.untried[k - floor],
+                            path[k], cell, colSize))
+                        keep |= 1L << cell;
+                }
+                moves = keep;
+            }
+            rest[k] = moves;
+            ends[k] = endCells(board, path[k], visited);
+            hash[k] = h ^ TranspositionTable.currentKey(path[k]);
+        }
+
+        SearchStats s = stats;
+        s.clear();
+        long nodes = 0;
+        while (d < numFree - 1) {
+
+            // check whether we should stop, and report the progress
+            s.nodes++;
+            if ((++nodes & (KnightTour.CHECK_INTERVAL - 1)) == 0) {
+                owner.report(s, d + 1);
+                boolean stop = owner.shouldStop();
+                if (owner.isCheckpointDue(stop))
+                    owner.checkpoint(path, floor, d, untried(path, floor, d));
+                if (stop)
+                    return false;
+                if (table == null && nodes >= TABLE_AFTER_NODES)
+                    table = new TranspositionTable(
+                            TranspositionTable.DEFAULT_BYTES);
+            }
+
+            long cand = rest[d];
+            if (cand != 0) {
+
+                // step into the candidate of the lowest onward degree
+                int next = -1;
+                int least = Integer.MAX_VALUE;
+                for (long c = cand; c != 0; c &= c - 1) {
+                    int cell = Long.numberOfTrailingZeros(c);
+                    int deg = board.degree(cell, visited);
+                    if (deg < least) {
+                        least = deg;
+                        next = cell;
+                    }
+                }
+                rest[d] = cand & ~(1L << next);
+                visited |= 1L << next;
+                path[++d] = next;
+                if (d + 1 > s.maxDepth)
+                    s.maxDepth = d + 1;
+                hash[d] = hash[d-1] ^ TranspositionTable.visitedKey(next)
+                        ^ TranspositionTable.currentKey(path[d-1])
+                        ^ TranspositionTable.currentKey(next);
+                SearchStats.Prune doom = doom(board, ends, path, d, visited);
+                if (doom == null && table != null
+                        && numFree - 1 - d >= TABLE_MIN_FREE
+                        && table.contains(hash[d], visited, next))
+                    doom = SearchStats.Prune.TRANSPOSITION;
+                if (doom != null) {
+                    s.prune(doom, d + 1);
+                    visited &= ~(1L << next);
+                    d--;
+                    continue;
+                }
+                rest[d] = board.moves(next) & ~visited;
+            } else {
+
+                // no more candidates, so this state has no tour
+                if (table != null && numFree - 1 - d >= TABLE_MIN_FREE)
+                    table.put(hash[d], visited, path[d], numFree - 1 - d);
+
+                // backtrack
+                s.backtrack(d + 1);
+                if (d == floor) {
+                    owner.report(s, d + 1);
+                    return false;
+                }
+                visited &= ~(1L << path[d]);
+                d--;
+            }
+        }
+        owner.report(s, numFree);
+        return true;
+    }
+
+    /**
+     * Method to return the moves not tried yet at each depth, for a
+     * checkpoint
+     * @param path the path
+     * @param floor the depth never backtracked from
+     * @param d the current depth
+     * @return the masks of the moves from each depth from floor to d
+     */
+    private byte[] untried(int[] path, int floor, int d) {
+        byte[] untried = new byte[d - floor + 1];
+        for (int k = floor; k <= d; k++)
+            for (long c = rest[k]; c != 0; c &= c - 1)
+                untried[k - floor] |= (byte) SearchCheckpoint.moveBit(path[k],
+                        Long.numberOfTrailingZeros(c), board.colSize);
+        return untried;
+    }
+
+    /**
+     * Method to count the full tours extending a path, by exploring all of
+     * them with the same prunes as search(), which only drop paths with no
+     * tour; the transposition table is not used, as it keeps no counts
+     * @param path the path, with its first len cells placed, used as the
+     *        stack of the search
+     * @param len the length of the given path, at least 1
+     * @param counts where to add the number of tours at index 0, and the
+     *        number of them ending a move away from path[0], so closed, at
+     *        index 1
+     * @return whether all of them are counted, or false if cancelled
+     */
+    public boolean count(int[] path, int len, long[] counts) {
+        int numFree = board.numFree;
+        long visited = 0;
+        for (int i = 0; i < len; i++)
+            visited |= 1L << path[i];
+        long home = board.moves(path[0]);
+
+        SearchStats s = stats;
+        s.clear();
+        int floor = len - 1;
+        int d = floor;
+        rest[d] = board.moves(path[d]) & ~visited;
+        ends[d] = endCells(board, path[d], visited);
+        while (true) {
+
+            // check whether we should stop, and report the progress
+            if ((++s.nodes & (KnightTour.CHECK_INTERVAL - 1)) == 0) {
+                owner.report(s, d + 1);
+                if (owner.shouldStop())
+                    return false;
+            }
+
+            long cand = rest[d];
+            if (d == numFree - 1) {
+
+                // a full tour
+                counts[0]++;
+                if ((home & 1L << path[d]) != 0)
+                    counts[1]++;
+            } else if (cand != 0) {
+
+                // step into the next candidate, in the order of the cells
+                int next = Long.numberOfTrailingZeros(cand);
+                rest[d] = cand & cand - 1;
+                visited |= 1L << next;
+                path[++d] = next;
+                if (d + 1 > s.maxDepth)
+                    s.maxDepth = d + 1;
+                SearchStats.Prune doom = doom(board, ends, path, d, visited);
+                if (doom != null) {
+                    s.prune(doom, d + 1);
+                    visited &= ~(1L << next);
+                    d--;
+                } else
+                    rest[d] = board.moves(next) & ~visited;
+                continue;
+            } else
+                s.backtrack(d + 1);
+
+            // backtrack
+            if (d == floor) {
+                owner.report(s, d + 1);
+                return true;
+            }
+            visited &= ~(1L << path[d]);
+            d--;
+        }
+    }
+
+    /**
+     * Method to check whether the path, just extended to depth d, can no
+     * longer become a tour; also keeps ends[d] for the next check
+     * @param board the board
+     * @param ends the cells that can only be the last cell of the tour, at
+     *        each depth up to d - 1
+     * @param path the path
+     * @param d the depth of the path
+     * @param visited the cells visited, including the last one
+     * @return why the path is doomed, or null if it is not
+     */
+    static SearchStats.Prune doom(BitBoard board, long[] ends, int[] path,
+            int d, long visited) {
+        long free = board.all & ~visited;
+        if (free == 0)
+            return null;
+
+        // only the neighbors of the cell left lose a way in, so only they
+        // can become a cell with no way in, or a cell to end at
+        int next = path[d];
+        long around = free | 1L << next;
+        long left = board.moves(path[d-1]) & free;
+        long end = ends[d-1] & free & ~left;
+        for (long c = left; c != 0; c &= c - 1) {
+            int cell = Long.numberOfTrailingZeros(c);
+            int deg = Long.bitCount(board.moves(cell) & around);
+            if (deg == 0)
+                return SearchStats.Prune.DEAD_CELL;
+            if (deg == 1)
+                end |= 1L << cell;
+        }
+        if ((end & end - 1) != 0)
+            return SearchStats.Prune.TWO_ENDS;
+        ends[d] = end;
+
+        // the free cells have to be in one piece, reached from here
+        long seed = board.moves(next) & free;
+        if (seed == 0 || !board.isConnected(free, seed))
+            return SearchStats.Prune.DISCONNECTED;
+        return null;
+    }
+
+    /**
+     * Method to collect the free cells that can only be the last cell of
+     * the tour, by checking all of them
+     * @param board the board
+     * @param cell the current cell
+     * @param visited the cells visited, including the current one
+     * @return the set of such cells
+     */
+    static long endCells(BitBoard board, int cell, long visited) {
+        long free = board.all & ~visited;
+        long around = free | 1L << cell;
+        long end = 0;
+        for (long c = free; c != 0; c &= c - 1) {
+            int u = Long.numberOfTrailingZeros(c);
+            if (Long.bitCount(board.moves(u) & around) <= 1)
+                end |= 1L << u;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,308 @@
+/**
+ * File: BoardCanvas.java
+ * Description: the board of KTSolver, drawn on canvases
+ * @author Zhiwei Jia
+ */
+
+import java.util.function.BiConsumer;
+import javafx.animation.AnimationTimer;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * Class Name: BoardCanvas
+ * Description: draws a board of any size and replays a tour on it, with
+ *              no node for a cell or a step, so its memory does not grow
+ *              with the board; the squares and the steps are drawn on one
+ *              canvas, which is only added to while replaying, so a frame
+ *              costs only the steps new in it; the knight is drawn on a
+ *              second canvas on top, where only the square it left is
+ *              cleared
+ *
+ *              A replay takes a fixed time for every step on small boards,
+ *              and at most MAX_REPLAY_NANOS for a whole tour on large ones,
+ *              drawing as many steps in a frame as are due, but never more
+ *              than MAX_STEPS_PER_FRAME, so a frame keeps within its time;
+ *              skip() draws the rest at that most; the steps are taken
+ *              from a TourQueue, so the replay starts with the first cell
+ *              a search gives, and waits where the search has not got yet
+ */
+public class BoardCanvas extends Pane {
+
+    // the most steps drawn in a frame
+    static final int MAX_STEPS_PER_FRAME = 2048;
+
+    // the time of a step on small boards, and the longest replay
+    static final long STEP_NANOS = 150_000_000L;
+    static final long MAX_REPLAY_NANOS = 10_000_000_000L;
+
+    // the smallest square written with its step, the others showing the
+    // path as lines instead
+    private static final double MIN_LABELED = 16;
+
+    // some value relevant to the board
+    private final int rowSize;
+    private final int colSize;
+    private final double pitch;
+    private final double square;
+
+    // the squares and the steps, and the knight on top of them
+    private final Canvas base;
+    private final Canvas overlay;
+    private final GraphicsContext g;
+    private final GraphicsContext o;
+    private final Image knight = new Image("knight's tour.png");
+
+    // the tour replayed, the cells taken from it in a frame, the last one
+    // drawn, or -1, the number of steps drawn, the time of a step and the
+    // steps due but not drawn yet
+    private TourQueue queue;
+    private final int[] steps = new int[MAX_STEPS_PER_FRAME];
+    private int last;
+    private int shown;
+    private double stepNanos;
+    private double due;
+    private boolean skipping;
+    private Runnable onFinished;
+
+    // where the knight was drawn last, or NaN if nowhere
+    private double knightX = Double.NaN;
+    private double knightY;
+
+    // the animation, called once every frame while replaying
+    private final AnimationTimer timer = new AnimationTimer() {
+        private long last;
+
+        @Override
+        public void start() {
+            last = 0;
+            super.start();
+        }
+
+        @Override
+        public void handle(long now) {
+            if (last != 0)
+                frame(now - last);
+            last = now;
+        }
+    };
+
+    /**
+     * Constructor with the size of the board and of a square
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param pitch the distance from a square to the next, in pixels
+     */
+    public BoardCanvas(int rowSize, int colSize, double pitch) {
+        this.rowSize = rowSize;
+        this.colSize = colSize;
+        this.pitch = pitch;
+        square = pitch - (pitch >= 40 ? 10 : pitch >= 8 ? 1 : 0);
+        base = new Canvas(colSize * pitch, rowSize * pitch);
+        overlay = new Canvas(colSize * pitch, rowSize * pitch);
+        g = base.getGraphicsContext2D();
+        o = overlay.getGraphicsContext2D();
+        getChildren().addAll(base, overlay);
+        drawBoard();
+    }
+
+    /**
+     * Method to set what to do when a square is clicked
+     * @param handler called with the row and the column of the square
+     */
+    public void setOnCellClicked(BiConsumer<Integer, Integer> handler) {
+        overlay.setOnMouseClicked(e -> {
+            int row = (int) (e.getY() / pitch);
+            int col = (int) (e.getX() / pitch);
+            if (row >= 0 && row < rowSize && col >= 0 && col < colSize)
+                handler.accept(row, col);
+        });
+    }
+
+    /**
+     * Method to stop the replay, if any, and show the empty board
+     */
+    public void reset() {
+        timer.stop();
+        if (queue != null)
+            queue.close();
+        queue = null;
+        shown = 0;
+        onFinished = null;
+        clearKnight();
+        drawBoard();
+    }
+
+    /**
+     * Method to start replaying a tour on the empty board, as its cells
+     * come; the queue is closed once the board is reset
+     * @param queue the queue the cells of the tour are streamed to
+     * @param onFinished called once the whole tour is shown, or null
+     */
+    public void play(TourQueue queue, Runnable onFinished) {
+        reset();
+        this.queue = queue;
+        this.onFinished = onFinished;
+        stepNanos = Math.min(STEP_NANOS, (double) MAX_REPLAY_NANOS
+                / (rowSize * colSize));
+        last = -1;
+        due = 1;
+        skipping = false;
+        timer.start();
+    }
+
+    /**
+     * Method to show the rest of the tour as fast as the frames allow
+     */
+    public void skip() {
+        skipping = true;
+    }
+
+    /**
+     * Method to return whether a tour is being replayed
+     * @return whether replaying
+     */
+    public boolean isPlaying() {
+        return queue != null && !queue.isDrained();
+    }
+
+    /**
+     * Method to draw the steps due in a frame and come from the search,
+     * and the knight
+     * @param nanos the time since the last frame
+     */
+    private void frame(long nanos) {
+        if (skipping)
+            due = MAX_STEPS_PER_FRAME;
+        else
+            due = Math.min(due + nanos / stepNanos, MAX_STEPS_PER_FRAME + 1);
+        int wanted = Math.min((int) due, MAX_STEPS_PER_FRAME);
+        int n = queue.poll(steps, wanted);
+        drawSteps(n);
+        shown += n;
+        due -= n;
+
+        // the time waiting for the search owes no steps, so cells that
+        // come later are still replayed at the pace of a step
+        if (n < wanted && !skipping)
+            due = Math.min(due, 1);
+        if (n > 0)
+            last = steps[n - 1];
+        if (queue.isDrained()) {
+            timer.stop();
+            if (last >= 0)
+                moveKnight(last, last, 0);
+            Runnable r = onFinished;
+            onFinished = null;
+            if (r != null)
+                r.run();
+            return;
+        }
+        if (last < 0)
+            return;
+
+        // glide toward the next square while a step takes several frames
+        int next = queue.peek();
+        if (next < 0)
+            moveKnight(last, last, 0);
+        else
+            moveKnight(last, next, stepNanos > 3e7 ? due : 0);
+    }
+
+    /**
+     * Method to draw all squares, light ones first and then dark ones, so
+     * the color changes only twice
+     */
+    private void drawBoard() {
+        g.clearRect(0, 0, colSize * pitch, rowSize * pitch);
+        for (int parity = 0; parity < 2; parity++) {
+            g.setFill(parity == 0 ? Color.LAVENDERBLUSH : Color.LIGHTSKYBLUE);
+            for (int row = 0; row < rowSize; row++)
+                for (int col = (row + parity) % 2; col < colSize; col += 2)
+                    g.fillRect(col * pitch, row * pitch, square, square);
+        }
+    }
+
+    /**
+     * Method to draw the steps taken in a frame, as their numbers on large
+     * squares or as one path of lines, from the last step, on small ones
+     * @param n the number of steps
+     */
+    private void drawSteps(int n) {
+        if (n == 0)
+            return;
+        if (square >= MIN_LABELED) {
+            g.setFill(Color.BLACK);
+            g.setFont(Font.font("Times New Roman", square * 0.36));
+            g.setTextAlign(TextAlignment.CENTER);
+            g.setTextBaseline(VPos.CENTER);
+            for (int i = 0; i < n; i++)
+                g.fillText(Integer.toString(shown + i + 1),
+                        centerX(steps[i]), centerY(steps[i]));
+            return;
+        }
+        g.setStroke(Color.DARKBLUE);
+        g.setLineWidth(Math.max(0.5, square / 6));
+        g.beginPath();
+        int first = last >= 0 ? last : steps[0];
+        g.moveTo(centerX(first), centerY(first));
+        for (int i = 0; i < n; i++)
+            g.lineTo(centerX(steps[i]), centerY(steps[i]));
+        g.stroke();
+    }
+
+    /**
+     * Method to draw the knight between two squares, clearing only where
+     * it was drawn last
+     * @param from the cell moved from
+     * @param to the cell moved to
+     * @param t how far it has moved, from 0 to 1
+     */
+    private void moveKnight(int from, int to, double t) {
+        t = Math.max(0, Math.min(1, t));
+        double x = (from % colSize + t * (to % colSize - from % colSize))
+                * pitch;
+        double y = (from / colSize + t * (to / colSize - from / colSize))
+                * pitch;
+        if (x == knightX && y == knightY)
+            return;
+        clearKnight();
+        o.drawImage(knight, x, y, square, square);
+        knightX = x;
+        knightY = y;
+    }
+
+    /**
+     * Method to clear the knight where it was drawn last
+     */
+    private void clearKnight() {
+        if (Double.isNaN(knightX))
+            return;
+        o.clearRect(knightX - 1, knightY - 1, square + 2, square + 2);
+        knightX = Double.NaN;
+    }
+
+    /**
+     * Method to return the x coordinate of the center of a cell
+     * @param cell the cell
+     * @return the coordinate
+     */
+    private double centerX(int cell) {
+        return cell % colSize * pitch + square / 2;
+    }
+
+    /**
+     * Method to return the y coordinate of the center of a cell
+     * @param cell the cell
+     * @return the coordinate
+     */
+    private double centerY(int cell) {
+        return cell / colSize * pitch + square / 2;
+    }
+}
@@ -0,0 +1,397 @@
+/**
+ * File: ClosedTour.java
+ * Description: finding a closed Knight's Tour by rotating a known cycle
+ * @author Zhiwei Jia
+ */
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Class Name: ClosedTour
+ * Description: finds a closed (re-entrant) Knight's Tour, whose last cell
+ *              is a move away from its first one; a closed tour passes
+ *              every cell, so one cycle per size of the board serves all
+ *              starting cells, and the recently used ones are kept, up to
+ *              KEPT_CELLS cells in all; every later request is answered by
+ *              rotating it, in linear time with no search; there is no
+ *              closed tour on a board of an odd number of cells, nor on
+ *              some narrow ones
+ *
+ *              The cycle of every board that has one is built in linear
+ *              time: by DivideAndConquerTour when both sides are at least
+ *              5, and on 3xN, N even and at least 10, from the cycle of
+ *              3x10 or 3x12, found by a short backtracking search, with
+ *              strips of 3x4 added at its end; the backtracking search is
+ *              only used for those two boards
+ */
+public class ClosedTour extends KnightTour {
+
+    // the cells of the cycles kept, about 8 bytes each, where a cycle of
+    // more than a quarter of them is built again every time
+    static final int KEPT_CELLS = 1 << 22;
+
+    // the cycles kept by rows and columns, the least recently used
+    // dropped first, and their cells
+    private static final LinkedHashMap<Long, Cycle> CYCLES =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private static long keptCells;
+
+    // the columns of the strip added at a time to a board of 3 rows, and
+    // the open tours of the strip, as row * STRIP + col
+    private static final int STRIP = 4;
+    private static final int[][] STRIP_TOURS = stripTours();
+
+    /**
+     * Constructor with the size of the board
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     */
+    public ClosedTour(int rowSize, int colSize) {
+        super(rowSize, colSize);
+    }
+
+    @Override
+    /**
+     * Method to keep the open tours out, as TourCache and TourTable hold
+     * open ones; the cycle kept by this class is used instead
+     * @param useCache ignored
+     */
+    public void setUseCache(boolean useCache) {
+    }
+
+    @Override
+    /**
+     * Method to keep the open tours out, as TourCache and TourTable hold
+     * open ones; the cycle kept by this class is used instead
+     * @param table ignored
+     */
+    public void setTable(TourTable table) {
+    }
+
+    @Override
+    /**
+     * Method to find a reason why there is no closed tour, by the sizes of
+     * the board alone, so no graph is ever built for it
+     * @param start the starting cell
+     * @return the reason, or null if there is a closed tour
+     */
+    protected SearchStats.Prune infeasibility(int start) {
+        if (hasCycle())
+            return null;
+        return numCell % 2 == 1 ? SearchStats.Prune.PARITY
+                : SearchStats.Prune.CLOSING;
+    }
+
+    @Override
+    /**
+     * Method to find a closed path by rotating the cycle of this board
+     * @param path the array to store the path, with the starting cell
+     *        placed at its index 0
+     * @return whether a closed path is found
+     */
+    protected boolean findPath(int[] path) {
+        Cycle cycle = cycle();
+        if (cycle == null)
+            return false;
+
+        // the cells from the start to the end of the cycle, then the ones
+        // before the start
+        int at = cycle.index[path[0]];
+        System.arraycopy(cycle.cells, at, path, 0, numCell - at);
+        System.arraycopy(cycle.cells, 0, path, numCell - at, at);
+        report(0, numCell);
+        return true;
+    }
+
+    /**
+     * Method to return the cycle of this board, from the ones kept or
+     * found now
+     * @return the cycle, or null if there is none or the search has been
+     *         cancelled
+     */
+    private Cycle cycle() {
+        Long key = (long) rowSize << 32 | colSize;
+        synchronized (CYCLES) {
+            Cycle cycle = CYCLES.get(key);
+            if (cycle != null)
+                return cycle;
+        }
+        int[] cells = new int[numCell];
+        if (!hasCycle() || !(construct(cells) || constructThin(cells)
+                || search(cells)))
+            return null;
+        Cycle cycle = new Cycle(cells);
+        return numCell > KEPT_CELLS / 4 ? cycle : keep(key, cycle);
+    }
+
+    /**
+     * Method to keep a cycle, dropping the least recently used ones until
+     * no more than KEPT_CELLS cells are kept
+     * @param key the rows and the columns of the board
+     * @param cycle the cycle
+     * @return the cycle kept, which is another one if another thread has
+     *         kept it first
+     */
+    private static Cycle keep(Long key, Cycle cycle) {
+        synchronized (CYCLES) {
+            Cycle kept = CYCLES.get(key);
+            if (kept != null)
+                return kept;
+            CYCLES.put(key, cycle);
+            keptCells += cycle.cells.length;
+            Iterator<Cycle> it = CYCLES.values().iterator();
+            while (keptCells > KEPT_CELLS && it.hasNext()) {
+                keptCells -= it.next().cells.length;
+                it.remove();
+            }
+        }
+        return cycle;
+    }
+
+    /**
+     * Method to check whether the board has a closed tour at all, by
+     * Schwenk's theorem: not if both sides are odd, or the shorter side is
+     * 1, 2 or 4, or it is 3 and the longer one is 4, 6 or 8
+     * @return whether there is a closed tour
+     */
+    private boolean hasCycle() {
+        int m = Math.min(rowSize, colSize);
+        int n = Math.max(rowSize, colSize);
+        return numCell % 2 == 0 && m != 1 && m != 2 && m != 4
+                && !(m == 3 && (n == 4 || n == 6 || n == 8));
+    }
+
+    /**
+     * Method to build the cycle by stitching the tours of blocks
+     * @param cells the array to store the cycle
+     * @return whether the board is handled this way
+     */
+    private boolean construct(int[] cells) {
+        DivideAndConquerTour.Layout layout = DivideAndConquerTour.Layout.of(
+                rowSize, colSize, 0, 0);
+        if (layout == null)
+            return false;
+        layout.start(0, 0);
+        cells[0] = 0;
+        for (int i = 1; i < numCell; i++) {
+            layout.next();
+            cells[i] = layout.row * colSize + layout.col;
+        }
+        return true;
+    }
+
+    /**
+     * Method to build the cycle of a board of 3 rows or 3 columns, other
+     * than 3x10 and 3x12 themselves, from the cycle of 3x10 or 3x12 of the
+     * same number of columns modulo 4; for every strip of 3x4 added at its
+     * end, an edge of the cycle ending in its last two columns is replaced
+     * by an open tour of the strip, from a move away from one end of the
+     * edge to a move away from the other
+     * @param cells the array to store the cycle
+     * @return whether the board is handled this way
+     */
+    private boolean constructThin(int[] cells) {
+        int n = Math.max(rowSize, colSize);
+        if (Math.min(rowSize, colSize) != 3 || n < 10
+                || rowSize == 3 && n <= 12)
+            return false;
+        ClosedTour base = new ClosedTour(3, n % STRIP == 0 ? 12 : 10);
+        Cycle small = base.cycle();
+        if (small == null)
+            return false;
+
+        // the cycle as the next cell of each cell, on 3 rows and n columns
+        int w = small.cells.length / 3;
+        int[] next = new int[3 * n];
+        for (int i = 0; i < small.cells.length; i++) {
+            int a = small.cells[i];
+            int b = small.cells[(i + 1) % small.cells.length];
+            next[a / w * n + a % w] = b / w * n + b % w;
+        }
+        for (; w < n; w += STRIP)
+            if (!addStrip(next, n, w))
+                return false;
+
+        // read it from the corner, turned if the board is of 3 columns
+        int cell = 0;
+        for (int i = 0; i < numCell; i++) {
+            cells[i] = rowSize == 3 ? cell : cell % n * colSize + cell / n;
+            cell = next[cell];
+        }
+        return true;
+    }
+
+    /**
+     * Method to add a strip of 3x4 at the end of a cycle of 3 rows
+     * @param next the next cell of each cell of the cycle, on n columns
+     * @param n the number of columns of the board
+     * @param w the number of columns of the cycle so far
+     * @return whether an edge and a tour of the strip are found to join
+     */
+    private static boolean addStrip(int[] next, int n, int w) {
+        for (int row = 0; row < 3; row++)
+            for (int col = w - 2; col < w; col++) {
+                int u = row * n + col;
+                int v = next[u];
+                if (v % n < w - 2)
+                    continue;
+                for (int[] tour : STRIP_TOURS) {
+                    int x = tour[0] / STRIP * n + w + tour[0] % STRIP;
+                    int y = tour[tour.length - 1] / STRIP * n + w
+                            + tour[tour.length - 1] % STRIP;
+                    if (!isMove(u, x, n) || !isMove(y, v, n))
+                        continue;
+                    int prev = u;
+                    for (int c : tour) {
+                        int cell = c / STRIP * n + w + c % STRIP;
+                        next[prev] = cell;
+                        prev = cell;
+                    }
+                    next[prev] = v;
+                    return true;
+                }
+            }
+        return false;
+    }
+
+    /**
+     * Method to find all open tours of the strip of 3x4, in both
+     * directions
+     * @return the tours, as row * STRIP + col
+     */
+    private static int[][] stripTours() {
+        List<int[]> tours = new ArrayList<>();
+        int[] path = new int[3 * STRIP];
+        for (int start = 0; start < path.length; start++) {
+            path[0] = start;
+            stripTours(path, 1, 1 << start, tours);
+        }
+        return tours.toArray(new int[0][]);
+    }
+
+    /**
+     * Method to extend a path in the strip of 3x4 into all its open tours
+     * @param path the path
+     * @param len the length of the path
+     * @param visited the cells of the path, as bits
+     * @param tours where to add the tours
+     */
+    private static void stripTours(int[] path, int len, int visited,
+            List<int[]> tours) {
+        if (len == path.length) {
+            tours.add(path.clone());
+            return;
+        }
+        for (int cell = 0; cell < path.length; cell++)
+            if ((visited & 1 << cell) == 0
+                    && isMove(path[len - 1], cell, STRIP)) {
+                path[len] = cell;
+                stripTours(path, len + 1, visited | 1 << cell, tours);
+            }
+    }
+
+    /**
+     * Method to search for a cycle by backtracking from the corner, trying
+     * the next moves in the order of their onward degree and giving up a
+     * path once every neighbor of the corner is taken
+     * @param cells the array to store the cycle
+     * @return whether a cycle is found
+     */
+    private boolean search(int[] cells) {
+        boolean[] visited = new boolean[numCell];
+        int[][] cand = new int[numCell][8];
+        int[] candCount = new int[numCell];
+        int[] candIdx = new int[numCell];
+
+        // the neighbors of the corner still free, one of which must end
+        // the cycle
+        int closing = expand(0, visited, cand[0]);
+
+        SearchStats s = new SearchStats(numCell);
+        visited[0] = true;
+        cells[0] = 0;
+        int d = 0;
+        candCount[0] = expand(0, visited, cand[0]);
+        candIdx[0] = 0;
+        while (true) {
+            if ((++s.nodes & (CHECK_INTERVAL - 1)) == 0) {
+                report(s, d + 1);
+                if (shouldStop())
+                    return false;
+            }
+            if (d == numCell - 1) {
+                if (isMove(cells[d], 0, colSize)) {
+                    report(s, numCell);
+                    return true;
+                }
+            } else if (candIdx[d] < candCount[d]) {
+
+                // never take the last free neighbor of the corner before
+                // the end
+                int next = cand[d][candIdx[d]++];
+                if (isMove(next, 0, colSize)) {
+                    if (closing == 1 && d + 1 < numCell - 1) {
+                        s.prune(SearchStats.Prune.CLOSING, d + 2);
+                        continue;
+                    }
+                    closing--;
+                }
+                visited[next] = true;
+                cells[++d] = next;
+                if (d + 1 > s.maxDepth)
+                    s.maxDepth = d + 1;
+                candCount[d] = expand(next, visited, cand[d]);
+                candIdx[d] = 0;
+                continue;
+            }
+
+            // no more candidates, backtrack
+            s.backtrack(d + 1);
+            if (d == 0) {
+                report(s, 1);
+                return false;
+            }
+            visited[cells[d]] = false;
+            if (isMove(cells[d], 0, colSize))
+                closing++;
+            d--;
+        }
+    }
+
+    /**
+     * Method to check whether two cells are a move apart
+     * @param a one cell
+     * @param b the other cell
+     * @param colSize the number of columns of the board of the cells
+     * @return whether they are
+     */
+    private static boolean isMove(int a, int b, int colSize) {
+        int dr = Math.abs(a / colSize - b / colSize);
+        int dc = Math.abs(a % colSize - b % colSize);
+        return dr * dc == 2;
+    }
+
+    /**
+     * Class Name: Cycle
+     * Description: a closed tour, with the place of every cell in it
+     */
+    private static final class Cycle {
+
+        private final int[] cells;
+        private final int[] index;
+
+        /**
+         * Constructor with the cells of the cycle
+         * @param cells the cells, in order
+         */
+        Cycle(int[] cells) {
+            this.cells = cells;
+            index = new int[cells.length];
+            for (int i = 0; i < cells.length; i++)
+                index[cells[i]] = i;
+        }
+    }
+}
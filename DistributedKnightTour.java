@@ -0,0 +1,765 @@
+/**
+ * File: DistributedKnightTour.java
+ * Description: finding or counting Knight's Tours with worker processes
+ * @author Zhiwei Jia
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class Name: DistributedKnightTour
+ * Description: runs the backtracking search of KnightTour on worker
+ *              processes, TourWorker, which connect to it over a socket on
+ *              the loopback interface; the search tree is split into the
+ *              subtrees below all paths of a few moves, the units, and
+ *              every worker is handed WINDOW of them at a time, so it never
+ *              waits for its next one; a worker left with nothing steals
+ *              a unit another one has not started, and once one finds a
+ *              tour all of them are stopped; count() counts all tours from
+ *              a cell the same way, adding up the counts of the units
+ *
+ *              Every worker sends a heartbeat several times a second; one
+ *              silent for HEARTBEAT_TIMEOUT_MILLIS, or whose connection is
+ *              lost, is dropped, and its units are handed to the others; a
+ *              unit is only counted once, even if it ends up searched by
+ *              two workers
+ *
+ *              Usage: java DistributedKnightTour rows cols row col
+ *                         [--workers N] [--port P] [--split D] [--count]
+ *
+ *              where N worker processes are started on this machine, and
+ *              more may join by java TourWorker P
+ */
+public class DistributedKnightTour extends KnightTour {
+
+    // the default number of moves of the paths the tree is split at
+    static final int DEFAULT_SPLIT_DEPTH = 4;
+
+    // the units a worker holds at a time, the one it searches and the
+    // ones waiting
+    static final int WINDOW = 2;
+
+    // how often a worker sends a heartbeat, and how long it may be silent
+    static final int HEARTBEAT_MILLIS = 250;
+    static final int HEARTBEAT_TIMEOUT_MILLIS = 3000;
+
+    // the messages to a worker: the job, a unit, taking back a unit not
+    // started, and stopping
+    static final byte JOB = 1;
+    static final byte UNIT = 2;
+    static final byte STEAL = 3;
+    static final byte STOP = 4;
+
+    // the messages from a worker: a heartbeat with its nodes so far, the
+    // result of a unit, and a unit given back
+    static final byte HEARTBEAT = 5;
+    static final byte RESULT = 6;
+    static final byte RETURNED = 7;
+
+    // the kinds of job
+    static final byte FIND = 0;
+    static final byte COUNT = 1;
+
+    private final int workers;
+    private final int port;
+    private final int splitDepth;
+
+    /**
+     * Constructor with the size of the board and the number of worker
+     * processes, started on this machine for every search
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param workers the number of worker processes
+     * @throws IllegalArgumentException if workers is not positive
+     */
+    public DistributedKnightTour(int rowSize, int colSize, int workers)
+            throws IllegalArgumentException {
+        this(rowSize, colSize, workers, 0, DEFAULT_SPLIT_DEPTH);
+    }
+
+    /**
+     * Constructor with the size of the board, the worker processes, the
+     * port they connect to and where to split the search tree
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param workers the number of worker processes started for every
+     *        search, which may be 0 if they are started by hand
+     * @param port the port on the loopback interface, 0 for any free one
+     * @param splitDepth the number of moves of the paths the search tree is
+     *        split at, where a larger one gives more and smaller units
+     * @throws IllegalArgumentException if no worker can join
+     */
+    public DistributedKnightTour(int rowSize, int colSize, int workers,
+            int port, int splitDepth) throws IllegalArgumentException {
+        super(rowSize, colSize);
+        if (workers < 0 || workers == 0 && port == 0)
+            throw new IllegalArgumentException("workers " + workers
+                    + " on port " + port);
+        this.workers = workers;
+        this.port = port;
+        this.splitDepth = Math.max(0, splitDepth);
+    }
+
+    /**
+     * main method for finding or counting the tours from a cell
+     * @param args the options, see the description of this class
+     */
+    public static void main(String[] args) {
+        if (args.length < 4) {
+            System.err.println("Usage: java DistributedKnightTour rows cols "
+                    + "row col [--workers N] [--port P] [--split D] "
+                    + "[--count]");
+            System.exit(1);
+        }
+        int rows = Integer.parseInt(args[0]);
+        int cols = Integer.parseInt(args[1]);
+        int row = Integer.parseInt(args[2]);
+        int col = Integer.parseInt(args[3]);
+        int workers = Runtime.getRuntime().availableProcessors();
+        int port = 0;
+        int split = DEFAULT_SPLIT_DEPTH;
+        boolean count = false;
+        for (int i = 4; i < args.length; i++) {
+            switch (args[i]) {
+                case "--workers": workers = Integer.parseInt(args[++i]); break;
+                case "--port": port = Integer.parseInt(args[++i]); break;
+                case "--split": split = Integer.parseInt(args[++i]); break;
+                case "--count": count = true; break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+        }
+
+        DistributedKnightTour kt = new DistributedKnightTour(rows, cols,
+                workers, port, split);
+        long t0 = System.nanoTime();
+        if (count) {
+            long[] counts = kt.count(row, col);
+            if (counts == null) {
+                System.out.println("The count did not finish");
+                System.exit(1);
+            }
+            System.out.println("Tours: " + counts[0]);
+            System.out.println("Closed tours: " + counts[1]);
+        } else if (kt.tour(row, col)) {
+            int[] steps = new int[rows * cols];
+            int[] tour = kt.getTour().toArray();
+            for (int i = 0; i < tour.length; i++)
+                steps[tour[i]] = i + 1;
+            for (int r = 0; r < rows; r++) {
+                StringBuilder sb = new StringBuilder();
+                for (int c = 0; c < cols; c++)
+                    sb.append(String.format("%5d", steps[r * cols + c]));
+                System.out.println(sb);
+            }
+        } else
+            System.out.println("No tour found");
+        System.out.printf("%,d nodes in %.3f s%n", kt.getNodeCount(),
+                (System.nanoTime() - t0) / 1e9);
+    }
+
+    /**
+     * Method to return the number of worker processes started for every
+     * search
+     * @return the number of worker processes
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    @Override
+    /**
+     * Method to find a full path with the worker processes
+     * @param path the array to store the path, with the starting cell
+     *        placed at its index 0
+     * @return whether a full path is found
+     */
+    protected boolean findPath(int[] path) {
+        Job job = new Job(FIND, path[0]);
+        if (!job.run() || job.solution == null)
+            return false;
+        System.arraycopy(job.solution, 0, path, 0, numFree);
+        return true;
+    }
+
+    /**
+     * Method to count all tours starting from the given cell with the
+     * worker processes, on a board of at most 64 cells
+     * @param row the row of the starting cell
+     * @param col the column of the starting cell
+     * @return the number of tours at index 0, and the number of closed
+     *         ones at index 1, or null if cancelled or all workers are lost
+     * @throws IllegalArgumentException if the cell is not on the board, or
+     *         the board has more than 64 cells
+     */
+    public long[] count(int row, int col) throws IllegalArgumentException {
+        if (row < 0 || row >= rowSize || col < 0 || col >= colSize
+                || numCell > BitBoard.MAX_CELLS)
+            throw new IllegalArgumentException("cannot count the tours of "
+                    + rowSize + "x" + colSize + " from " + row + "," + col);
+        begin();
+        long[] counts = null;
+        try {
+
+            // no tour starts on the color of fewer cells
+            if (numCell % 2 == 1 && (row + col) % 2 == 1)
+                counts = new long[2];
+            else {
+                Job job = new Job(COUNT, row * colSize + col);
+                if (job.run())
+                    counts = job.counts;
+            }
+        } finally {
+            finish(counts != null && counts[0] > 0);
+        }
+        return counts;
+    }
+
+    /**
+     * Method to collect the units, the paths of splitDepth moves from a
+     * path, or shorter ones that are already tours, in the order the
+     * backtracking search would take them
+     * @param path the path, used as the stack
+     * @param len the length of the path
+     * @param visited the cells of the path
+     * @param units where to add the units
+     */
+    private void addUnits(int[] path, int len, boolean[] visited,
+            List<int[]> units) {
+        if (len > splitDepth || len == numFree) {
+            units.add(Arrays.copyOf(path, len));
+            return;
+        }
+        int[] cand = new int[8];
+        int count = expand(path[len - 1], visited, cand);
+        for (int i = 0; i < count; i++) {
+            path[len] = cand[i];
+            visited[cand[i]] = true;
+            addUnits(path, len + 1, visited, units);
+            visited[cand[i]] = false;
+        }
+    }
+
+    /**
+     * Class Name: Job
+     * Description: one search over the worker processes, from starting
+     *              them to stopping them, which hands out the units and
+     *              keeps their results; all of its state is guarded by the
+     *              job itself, and written by the threads reading from the
+     *              workers, while the searching thread waits for the end
+     */
+    private class Job {
+
+        // the kind of job, the units, and which of them are done
+        private final byte kind;
+        private final List<int[]> units = new ArrayList<>();
+        private final boolean[] done;
+        private int left;
+
+        // the units to hand out, first the ones given back or taken from
+        // lost workers, and the ones asked back from a worker
+        private final ArrayDeque<Integer> pool = new ArrayDeque<>();
+        private final Set<Integer> stealing = new HashSet<>();
+
+        // the workers connected, and the processes started
+        private final List<Link> links = new ArrayList<>();
+        private final List<Process> processes = new ArrayList<>();
+        private ServerSocket server;
+        private int joined;
+        private boolean over;
+
+        // the results, the tour found or the counts of all units done
+        private int[] solution;
+        private final long[] counts = new long[2];
+
+        /**
+         * Constructor with the kind of job and the starting cell, which
+         * splits the search tree into the units
+         * @param kind FIND or COUNT
+         * @param start the starting cell
+         */
+        Job(byte kind, int start) {
+            this.kind = kind;
+            int[] path = new int[numFree];
+            boolean[] visited = new boolean[numCell];
+            path[0] = start;
+            visited[start] = true;
+            addUnits(path, 1, visited, units);
+            done = new boolean[units.size()];
+            left = units.size();
+            for (int u = 0; u < units.size(); u++)
+                pool.add(u);
+        }
+
+        /**
+         * Method to start the workers and wait until a tour is found, all
+         * units are done, or the search is stopped
+         * @return whether the job is over with all its units done, or
+         *         with a tour found
+         */
+        boolean run() {
+            if (left == 0)
+                return true;
+            try (ServerSocket s = new ServerSocket(port, 50,
+                    InetAddress.getLoopbackAddress())) {
+                synchronized (this) {
+                    server = s;
+                }
+                Thread acceptor = new Thread(this::accept,
+                        "DistributedKnightTour-accept");
+                acceptor.setDaemon(true);
+                acceptor.start();
+                for (int i = 0; i < workers; i++)
+                    processes.add(spawn(s.getLocalPort()));
+
+                synchronized (this) {
+                    while (solution == null && left > 0 && !shouldStop()) {
+                        if (isLost()) {
+                            System.err.println("All workers are lost");
+                            return false;
+                        }
+                        wait(HEARTBEAT_MILLIS);
+                        reap();
+                    }
+                    return solution != null || left == 0;
+                }
+            } catch (IOException ex) {
+                System.err.println("Cannot run the workers: " + ex);
+                return false;
+            } catch (InterruptedException ex) {
+                cancel();
+                return false;
+            } finally {
+                stopAll();
+            }
+        }
+
+        /**
+         * Method to start a worker process on this machine, with the class
+         * path and the JVM of this one
+         * @param localPort the port it connects to
+         * @return the process
+         * @throws IOException if it cannot be started
+         */
+        private Process spawn(int localPort) throws IOException {
+            String java = Paths.get(System.getProperty("java.home"), "bin",
+                    "java").toString();
+            return new ProcessBuilder(java, "-cp",
+                    System.getProperty("java.class.path"), "TourWorker",
+                    Integer.toString(localPort)).inheritIO().start();
+        }
+
+        /**
+         * Method to check whether no worker is left nor can join, which is
+         * when the ones started have all ended and no port was given for
+         * more to join
+         * @return whether the workers are lost
+         */
+        private boolean isLost() {
+            if (!links.isEmpty() || port != 0)
+                return false;
+            for (Process p : processes)
+                if (p.isAlive())
+                    return false;
+            return true;
+        }
+
+        /**
+         * Method to take the workers connecting, until the server socket
+         * is closed, each read from on a thread of its own
+         */
+        private void accept() {
+            while (true) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                    socket.setTcpNoDelay(true);
+                } catch (IOException ex) {
+                    return;
+                }
+                Link link = new Link(socket);
+                synchronized (this) {
+                    if (over) {
+                        link.close();
+                        continue;
+                    }
+                    link.sendJob(kind, rowSize, colSize);
+                    links.add(link);
+                    dispatch(link);
+                }
+                Thread reader = new Thread(() -> read(link),
+                        "DistributedKnightTour-" + joined++);
+                reader.setDaemon(true);
+                reader.start();
+            }
+        }
+
+        /**
+         * Method to read the messages of a worker until its connection is
+         * closed, and then drop it
+         * @param link the worker
+         */
+        private void read(Link link) {
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(link.socket.getInputStream()))) {
+                while (true) {
+                    byte type = in.readByte();
+                    if (type == HEARTBEAT)
+                        heard(link, in.readLong());
+                    else if (type == RESULT) {
+                        int u = in.readInt();
+                        long nodes = in.readLong();
+                        int[] tour = null;
+                        long open = 0;
+                        long closed = 0;
+                        if (kind == FIND) {
+                            int len = in.readInt();
+                            if (len < 0 || len > numFree)
+                                throw new IOException("a tour of " + len
+                                        + " cells");
+                            if (len > 0) {
+                                tour = new int[len];
+                                for (int i = 0; i < len; i++)
+                                    tour[i] = in.readInt();
+                            }
+                        } else {
+                            open = in.readLong();
+                            closed = in.readLong();
+                        }
+                        finished(link, u, nodes, tour, open, closed);
+                    } else if (type == RETURNED)
+                        returned(link, in.readInt());
+                    else
+                        throw new IOException("unknown message " + type);
+                }
+            } catch (IOException ex) {
+                drop(link, null);
+            }
+        }
+
+        /**
+         * Method to note a heartbeat of a worker, with its progress
+         * @param link the worker
+         * @param nodes the nodes it has explored so far
+         */
+        private synchronized void heard(Link link, long nodes) {
+            link.lastHeard = System.nanoTime();
+            if (nodes > link.nodes) {
+                report(nodes - link.nodes, splitDepth + 1);
+                link.nodes = nodes;
+            }
+        }
+
+        /**
+         * Method to keep the result of a unit, unless it is already done,
+         * and hand the worker more
+         * @param link the worker
+         * @param u the unit
+         * @param nodes the nodes the worker has explored so far
+         * @param tour the tour found, or null
+         * @param open the number of tours of the unit
+         * @param closed the number of closed tours of the unit
+         */
+        private synchronized void finished(Link link, int u, long nodes,
+                int[] tour, long open, long closed) {
+            if (!holds(link, u) || tour != null && !isTour(u, tour)) {
+                drop(link, "A worker sent a wrong result, its units are "
+                        + "handed to the others");
+                return;
+            }
+            heard(link, nodes);
+            link.assigned.remove(u);
+            stealing.remove(u);
+            if (!done[u]) {
+                done[u] = true;
+                left--;
+                counts[0] += open;
+                counts[1] += closed;
+                if (tour != null && solution == null)
+                    solution = tour;
+            }
+            if (solution != null || left == 0)
+                notifyAll();
+            else
+                dispatchAll();
+        }
+
+        /**
+         * Method to put back a unit a worker gave back, not started, and
+         * hand it to a worker with nothing to do
+         * @param link the worker
+         * @param u the unit
+         */
+        private synchronized void returned(Link link, int u) {
+            if (!holds(link, u)) {
+                drop(link, "A worker gave back a unit it did not hold, its "
+                        + "units are handed to the others");
+                return;
+            }
+            link.assigned.remove(u);
+            stealing.remove(u);
+            if (!done[u])
+                pool.addFirst(u);
+            dispatchAll();
+        }
+
+        /**
+         * Method to check whether a worker holds a unit, as any process on
+         * this machine may connect when a port is given
+         * @param link the worker
+         * @param u the index of the unit, as sent by the worker
+         * @return whether it is a unit handed to the worker and not done
+         */
+        private boolean holds(Link link, int u) {
+            return u >= 0 && u < done.length && link.assigned.contains(u);
+        }
+
+        /**
+         * Method to check whether a tour sent by a worker extends the path
+         * of its unit and visits every free cell once, by moves only
+         * @param u the unit
+         * @param tour the tour
+         * @return whether it is such a tour
+         */
+        private boolean isTour(int u, int[] tour) {
+            int[] prefix = units.get(u);
+            if (tour.length != numFree)
+                return false;
+            MoveGraph g = graph();
+            boolean[] seen = new boolean[numCell];
+            for (int i = 0; i < tour.length; i++) {
+                int cell = tour[i];
+                if (cell < 0 || cell >= numCell || seen[cell]
+                        || i < prefix.length && cell != prefix[i]
+                        || i > 0 && !g.isMove(tour[i - 1], cell))
+                    return false;
+                seen[cell] = true;
+            }
+            return true;
+        }
+
+        /**
+         * Method to drop a worker, handing its units to the others
+         * @param link the worker
+         * @param why why it is dropped, printed if not null
+         */
+        private synchronized void drop(Link link, String why) {
+            if (!links.remove(link))
+                return;
+            if (why != null)
+                System.err.println(why);
+            link.close();
+            Iterator<Integer> it = link.assigned.descendingIterator();
+            while (it.hasNext()) {
+                int u = it.next();
+                stealing.remove(u);
+                if (!done[u])
+                    pool.addFirst(u);
+            }
+            link.assigned.clear();
+            dispatchAll();
+            notifyAll();
+        }
+
+        /**
+         * Method to drop the workers silent for too long
+         */
+        private synchronized void reap() {
+            long now = System.nanoTime();
+            for (Link link : new ArrayList<>(links))
+                if (now - link.lastHeard > TimeUnit.MILLISECONDS.toNanos(
+                        HEARTBEAT_TIMEOUT_MILLIS))
+                    drop(link, "A worker is silent, its units are handed "
+                            + "to the others");
+        }
+
+        /**
+         * Method to hand units to every worker with room for more
+         */
+        private void dispatchAll() {
+            if (over)
+                return;
+            for (Link link : links)
+                dispatch(link);
+        }
+
+        /**
+         * Method to hand units to a worker until it holds WINDOW of them,
+         * or, if none is left to hand out and it has nothing to do, to ask
+         * back a unit not started from the worker holding the most
+         * @param link the worker
+         */
+        private void dispatch(Link link) {
+            while (link.assigned.size() < WINDOW && !pool.isEmpty()) {
+                int u = pool.poll();
+                if (done[u])
+                    continue;
+                link.assigned.add(u);
+                link.sendUnit(u, units.get(u));
+            }
+            if (!link.assigned.isEmpty())
+                return;
+
+            // steal the last unit of the busiest worker, which has not
+            // started it unless it is the only one it holds
+            Link victim = null;
+            for (Link other : links)
+                if (other.assigned.size() > 1 && !stealing.contains(
+                        other.assigned.peekLast()) && (victim == null
+                        || other.assigned.size() > victim.assigned.size()))
+                    victim = other;
+            if (victim != null) {
+                stealing.add(victim.assigned.peekLast());
+                victim.sendSteal(victim.assigned.peekLast());
+            }
+        }
+
+        /**
+         * Method to stop all workers and the processes started, giving the
+         * processes a second to end
+         */
+        private void stopAll() {
+            List<Link> left;
+            synchronized (this) {
+                over = true;
+                left = new ArrayList<>(links);
+                links.clear();
+            }
+            for (Link link : left) {
+                link.sendStop();
+                link.close();
+            }
+            for (Process p : processes) {
+                try {
+                    if (!p.waitFor(1, TimeUnit.SECONDS))
+                        p.destroyForcibly();
+                } catch (InterruptedException ex) {
+                    p.destroyForcibly();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Class Name: Link
+     * Description: the connection to a worker, with the units it holds in
+     *              the order it searches them; a failed write closes the
+     *              connection, so the thread reading from it drops it
+     */
+    private static class Link {
+
+        private final Socket socket;
+        private DataOutputStream out;
+
+        // the units handed to the worker and not done, the time it was
+        // last heard from, and the nodes it has explored
+        final ArrayDeque<Integer> assigned = new ArrayDeque<>();
+        long lastHeard = System.nanoTime();
+        long nodes;
+
+        /**
+         * Constructor with the socket connected to the worker
+         * @param socket the socket
+         */
+        Link(Socket socket) {
+            this.socket = socket;
+            try {
+                out = new DataOutputStream(new BufferedOutputStream(
+                        socket.getOutputStream()));
+            } catch (IOException ex) {
+                close();
+            }
+        }
+
+        /**
+         * Method to send the job
+         * @param kind FIND or COUNT
+         * @param rowSize the number of rows
+         * @param colSize the number of columns
+         */
+        synchronized void sendJob(byte kind, int rowSize, int colSize) {
+            try {
+                out.writeByte(JOB);
+                out.writeInt(rowSize);
+                out.writeInt(colSize);
+                out.writeByte(kind);
+                out.flush();
+            } catch (IOException | RuntimeException ex) {
+                close();
+            }
+        }
+
+        /**
+         * Method to send a unit
+         * @param u the index of the unit
+         * @param prefix the path of the unit
+         */
+        synchronized void sendUnit(int u, int[] prefix) {
+            try {
+                out.writeByte(UNIT);
+                out.writeInt(u);
+                out.writeInt(prefix.length);
+                for (int cell : prefix)
+                    out.writeInt(cell);
+                out.flush();
+            } catch (IOException | RuntimeException ex) {
+                close();
+            }
+        }
+
+        /**
+         * Method to ask a unit back, if the worker has not started it
+         * @param u the index of the unit
+         */
+        synchronized void sendSteal(int u) {
+            try {
+                out.writeByte(STEAL);
+                out.writeInt(u);
+                out.flush();
+            } catch (IOException | RuntimeException ex) {
+                close();
+            }
+        }
+
+        /**
+         * Method to tell the worker to stop
+         */
+        synchronized void sendStop() {
+            try {
+                out.writeByte(STOP);
+                out.flush();
+            } catch (IOException | RuntimeException ex) {
+                close();
+            }
+        }
+
+        /**
+         * Method to close the connection
+         */
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                // closed anyway
+            }
+        }
+    }
+}
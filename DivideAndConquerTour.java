@@ -0,0 +1,436 @@
+/**
+ * File: DivideAndConquerTour.java
+ * Description: constructing a Knight's Tour of a huge board from blocks
+ * @author Zhiwei Jia
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Class Name: DivideAndConquerTour
+ * Description: builds a Knight's Tour with no search at all, in the way of
+ *              Parberry's algorithm; the board is cut into blocks of 5 to
+ *              10 rows and columns, each covered by a closed tour of
+ *              TourBlock, and the tours of the blocks are stitched into
+ *              one by swapping two edges at each border, along every strip
+ *              of blocks and down its first column; the tour is then read
+ *              from the starting cell by following the stitched cycle,
+ *              whose links are computed from the coordinates, so it takes
+ *              linear time and no memory but the path; on a board of odd
+ *              rows and columns there is no closed tour, so the block of
+ *              the starting cell leaves the starting cell out and the path
+ *              jumps from it onto the cycle; boards narrower than 5 cells,
+ *              and the odd ones whose block cannot leave the starting cell
+ *              out, such as 5x17 from (1, 1), are left to WarnsdorffTour,
+ *              whose rule hands over to the exhaustive search of KnightTour
+ *              once it gives up, within the budget of nodes of that class
+ */
+public class DivideAndConquerTour extends WarnsdorffTour {
+
+    /**
+     * Constructor with the size of the board
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     */
+    public DivideAndConquerTour(int rowSize, int colSize) {
+        super(rowSize, colSize);
+    }
+
+    @Override
+    /**
+     * Method to find a full path by following the stitched cycle
+     * @param path the array to store the path, with the starting cell
+     *        placed at its index 0
+     * @return whether a full path is found
+     */
+    protected boolean findPath(int[] path) {
+        Layout layout = Layout.of(rowSize, colSize, path[0] / colSize,
+                path[0] % colSize);
+        // no blocks for this board and start, the rule and then the
+        // exhaustive search decide
+        if (layout == null)
+            return super.findPath(path);
+
+        layout.start(path[0] / colSize, path[0] % colSize);
+        for (int i = 1; i < numCell; i++) {
+            if ((i & (CHECK_INTERVAL - 1)) == 0) {
+                report(CHECK_INTERVAL, i);
+                if (shouldStop())
+                    return false;
+            }
+            layout.next();
+            path[i] = layout.row * colSize + layout.col;
+        }
+        report((numCell - 1) & (CHECK_INTERVAL - 1), numCell);
+        return true;
+    }
+
+    @Override
+    /**
+     * Method to find a tour and stream it to a sink while following the
+     * stitched cycle, so the board may have more cells than an array can
+     * hold; the sink is left unfinished if the search is cancelled
+     * @param row the row of the starting cell
+     * @param col the column of the starting cell
+     * @param sink the sink to receive the tour
+     * @return whether a tour is found
+     * @throws IOException if the sink fails
+     */
+    public boolean tour(int row, int col, TourSink sink) throws IOException {
+        long cells = (long) rowSize * colSize;
+        if (row < 0 || row >= rowSize || col < 0 || col >= colSize
+                || cells % 2 == 1 && (row + col) % 2 == 1)
+            return super.tour(row, col, sink);
+        Layout layout = Layout.of(rowSize, colSize, row, col);
+        if (layout == null)
+            return super.tour(row, col, sink);
+
+        tour = new IntDeque(0);
+        begin();
+        boolean found = false;
+        try {
+            found = stream(layout, row, col, sink);
+        } finally {
+            finish(found);
+        }
+        return found;
+    }
+
+    /**
+     * Method to stream the tour of a layout to a sink
+     * @param layout the layout of the board
+     * @param row the row of the starting cell
+     * @param col the column of the starting cell
+     * @param sink the sink to receive the tour
+     * @return whether the tour is streamed, or false if cancelled
+     * @throws IOException if the sink fails
+     */
+    private boolean stream(Layout layout, int row, int col, TourSink sink)
+            throws IOException {
+        long cells = (long) rowSize * colSize;
+        sink.begin(rowSize, colSize, row, col);
+        layout.start(row, col);
+        for (long i = 1; i < cells; i++) {
+            if ((i & (CHECK_INTERVAL - 1)) == 0) {
+                report(CHECK_INTERVAL, (int) Math.min(i, Integer.MAX_VALUE));
+                if (shouldStop())
+                    return false;
+            }
+            int r = layout.row;
+            int c = layout.col;
+            layout.next();
+            sink.move(MoveCodec.moveIndex(layout.row - r, layout.col - c));
+        }
+        sink.end();
+        return true;
+    }
+
+    /**
+     * Class Name: Layout
+     * Description: the blocks of a board, and a walk along the cycle
+     *              stitched from their tours
+     */
+    static final class Layout {
+
+        // the block strip of every row and column, and the first row or
+        // column and the size of every strip
+        private final int[] rowPart;
+        private final int[] colPart;
+        private final int[] rowStart;
+        private final int[] rowLen;
+        private final int[] colStart;
+        private final int[] colLen;
+
+        // the tours of the blocks by their sizes, and the block holding
+        // the starting cell as a hole, if any
+        private final TourBlock[][] blocks =
+                new TourBlock[TourBlock.MAX_SIDE + 1][TourBlock.MAX_SIDE + 1];
+        private TourBlock holeBlock;
+        private int holeRowPart = -1;
+        private int holeColPart = -1;
+
+        // the cell the walk is at and the one it came from, and whether
+        // it is still at the hole
+        int row;
+        int col;
+        private int prevRow;
+        private int prevCol;
+        private boolean onHole;
+
+        // the two links of the cell asked for by links()
+        private final int[] linkRow = new int[2];
+        private final int[] linkCol = new int[2];
+
+        /**
+         * Constructor with the sizes of the strips
+         * @param rows the number of rows of each strip, from the top
+         * @param cols the number of columns of each strip, from the left
+         * @param rowSize the number of rows
+         * @param colSize the number of columns
+         */
+        private Layout(int[] rows, int[] cols, int rowSize, int colSize) {
+            rowLen = rows;
+            colLen = cols;
+            rowStart = new int[rows.length];
+            colStart = new int[cols.length];
+            rowPart = new int[rowSize];
+            colPart = new int[colSize];
+            for (int i = 0, r = 0; i < rows.length; r += rows[i++]) {
+                rowStart[i] = r;
+                for (int k = 0; k < rows[i]; k++)
+                    rowPart[r + k] = i;
+            }
+            for (int j = 0, c = 0; j < cols.length; c += cols[j++]) {
+                colStart[j] = c;
+                for (int k = 0; k < cols[j]; k++)
+                    colPart[c + k] = j;
+            }
+        }
+
+        /**
+         * Method to cut a board into blocks for a tour from the given cell
+         * @param rowSize the number of rows
+         * @param colSize the number of columns
+         * @param row the row of the starting cell
+         * @param col the column of the starting cell
+         * @return the layout, or null if this board is not handled
+         */
+        static Layout of(int rowSize, int colSize, int row, int col) {
+            if (rowSize < TourBlock.MIN_SIDE || colSize < TourBlock.MIN_SIDE)
+                return null;
+            Layout layout;
+            if (rowSize % 2 == 0 || colSize % 2 == 0) {
+
+                // only blocks of an even number of cells, so closed tours
+                layout = new Layout(split(rowSize, 0, oddSide(rowSize)),
+                        split(colSize, 0, oddSide(colSize)), rowSize, colSize);
+            } else {
+                layout = withHole(rowSize, colSize, row, col);
+                if (layout == null)
+                    return null;
+            }
+            for (int i = 0; i < layout.rowLen.length; i++)
+                for (int j = 0; j < layout.colLen.length; j++) {
+                    int h = layout.rowLen[i];
+                    int w = layout.colLen[j];
+                    if (i == layout.holeRowPart && j == layout.holeColPart
+                            || layout.blocks[h][w] != null)
+                        continue;
+                    layout.blocks[h][w] = TourBlock.of(h, w, -1);
+                    if (layout.blocks[h][w] == null)
+                        return null;
+                }
+            return layout;
+        }
+
+        /**
+         * Method to cut a board of odd rows and columns, so that the only
+         * block of odd rows and columns holds the starting cell, as its
+         * hole; the strips before it are even, so the cell keeps its color
+         * @param rowSize the number of rows
+         * @param colSize the number of columns
+         * @param row the row of the starting cell
+         * @param col the column of the starting cell
+         * @return the layout, or null if none of the blocks that may hold
+         *         the cell has a tour leaving it out
+         */
+        private static Layout withHole(int rowSize, int colSize, int row,
+                int col) {
+            int[] sides = {7, 9, 5};
+            for (int h : sides)
+                for (int top = row - row % 2; top > row - h; top -= 2) {
+                    if (top < 0 || !isEvenSplit(top)
+                            || !isEvenSplit(rowSize - top - h))
+                        continue;
+                    for (int w : sides)
+                        for (int left = col - col % 2; left > col - w;
+                                left -= 2) {
+                            if (left < 0 || !isEvenSplit(left)
+                                    || !isEvenSplit(colSize - left - w))
+                                continue;
+                            TourBlock b = TourBlock.of(h, w,
+                                    (row - top) * w + col - left);
+                            if (b == null)
+                                continue;
+                            Layout layout = new Layout(split(rowSize, top, h),
+                                    split(colSize, left, w), rowSize, colSize);
+                            layout.holeBlock = b;
+                            layout.holeRowPart = layout.rowPart[row];
+                            layout.holeColPart = layout.colPart[col];
+                            return layout;
+                        }
+                }
+            return null;
+        }
+
+        /**
+         * Method to check whether a length can be cut into strips of 6, 8
+         * and 10
+         * @param length the length
+         * @return whether it can
+         */
+        private static boolean isEvenSplit(int length) {
+            return length == 0 || length >= 6 && length % 2 == 0;
+        }
+
+        /**
+         * Method to return the size of the odd strip of a side, placed
+         * first, or 0 if the side is even
+         * @param side the side
+         * @return the size of its odd strip
+         */
+        private static int oddSide(int side) {
+            if (side % 2 == 0)
+                return 0;
+            return isEvenSplit(side - 7) ? 7 : isEvenSplit(side - 9) ? 9 : 5;
+        }
+
+        /**
+         * Method to cut a side into strips of 6, 8 and 10, with an odd one
+         * at the given place
+         * @param side the side
+         * @param oddStart where the odd strip starts
+         * @param oddSize the size of the odd strip, or 0 for none
+         * @return the sizes of the strips, in order
+         */
+        private static int[] split(int side, int oddStart, int oddSize) {
+            int[] parts = new int[side / 6 + 1];
+            int count = 0;
+            for (int at = 0; at < side; at += parts[count++]) {
+                if (at == oddStart && oddSize > 0) {
+                    parts[count] = oddSize;
+                    continue;
+                }
+
+                // never leave 2 or 4 before the odd strip or the end
+                int rest = (at < oddStart ? oddStart : side) - at;
+                parts[count] = rest <= 10 ? rest : rest == 12 ? 6 : 8;
+            }
+            return Arrays.copyOf(parts, count);
+        }
+
+        /**
+         * Method to start the walk at a cell
+         * @param r the row of the cell
+         * @param c the column of the cell
+         */
+        void start(int r, int c) {
+            onHole = holeBlock != null;
+            if (onHole) {
+                row = r;
+                col = c;
+            } else
+                enter(r, c);
+        }
+
+        /**
+         * Method to put the walk at a cell of the cycle, heading along the
+         * first link of the cell
+         * @param r the row of the cell
+         * @param c the column of the cell
+         */
+        private void enter(int r, int c) {
+            row = r;
+            col = c;
+            links(r, c);
+            prevRow = linkRow[1];
+            prevCol = linkCol[1];
+        }
+
+        /**
+         * Method to move the walk to the next cell, along the cycle in the
+         * direction of the first link of the starting cell
+         */
+        void next() {
+            if (onHole) {
+
+                // jump from the hole onto the cycle, at any neighbor
+                onHole = false;
+                for (int m = 0; m < 8; m++) {
+                    int r = row + KnightTour.ROW_MOVES[m];
+                    int c = col + KnightTour.COL_MOVES[m];
+                    if (r >= 0 && r < rowPart.length && c >= 0
+                            && c < colPart.length) {
+                        enter(r, c);
+                        return;
+                    }
+                }
+            }
+            links(row, col);
+            int k = linkRow[0] == prevRow && linkCol[0] == prevCol ? 1 : 0;
+            prevRow = row;
+            prevCol = col;
+            row = linkRow[k];
+            col = linkCol[k];
+        }
+
+        /**
+         * Method to find the two links of a cell on the stitched cycle
+         * @param r the row of the cell
+         * @param c the column of the cell
+         */
+        private void links(int r, int c) {
+            int i = rowPart[r];
+            int j = colPart[c];
+            int top = rowStart[i];
+            int left = colStart[j];
+            int h = rowLen[i];
+            int w = colLen[j];
+            TourBlock b = i == holeRowPart && j == holeColPart ? holeBlock
+                    : blocks[h][w];
+            int lr = r - top;
+            int lc = c - left;
+            for (int k = 0; k < 2; k++) {
+                int n = b.link(lr * w + lc, k);
+                linkRow[k] = top + n / w;
+                linkCol[k] = left + n % w;
+            }
+
+            // the edges swapped with the block on the right or the left
+            if (j + 1 < colLen.length) {
+                if (lr == 0 && lc == w - 1)
+                    relink(top + 2, left + w - 2, top + 1, left + w + 1);
+                else if (lr == 2 && lc == w - 2)
+                    relink(top, left + w - 1, top + 3, left + w);
+            }
+            if (j > 0) {
+                if (lr == 1 && lc == 1)
+                    relink(top + 3, left, top, left - 1);
+                else if (lr == 3 && lc == 0)
+                    relink(top + 1, left + 1, top + 2, left - 2);
+                return;
+            }
+
+            // the edges swapped with the block below or above, only in the
+            // first column of blocks
+            if (i + 1 < rowLen.length) {
+                if (lr == h - 1 && lc == 0)
+                    relink(top + h - 2, left + 2, top + h + 1, left + 1);
+                else if (lr == h - 2 && lc == 2)
+                    relink(top + h - 1, left, top + h, left + 3);
+            }
+            if (i > 0) {
+                if (lr == 1 && lc == 1)
+                    relink(top, left + 3, top - 1, left);
+                else if (lr == 0 && lc == 3)
+                    relink(top + 1, left + 1, top - 2, left + 2);
+            }
+        }
+
+        /**
+         * Method to replace a link found by links()
+         * @param r the row of the old link
+         * @param c the column of the old link
+         * @param newRow the row of the new link
+         * @param newCol the column of the new link
+         */
+        private void relink(int r, int c, int newRow, int newCol) {
+            for (int k = 0; k < 2; k++)
+                if (linkRow[k] == r && linkCol[k] == c) {
+                    linkRow[k] = newRow;
+                    linkCol[k] = newCol;
+                }
+        }
+    }
+}
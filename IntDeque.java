@@ -0,0 +1,262 @@
+/**
+ * File: IntDeque.java
+ * Description: a double ended queue of ints with bounded size
+ * @author Zhiwei Jia
+ */
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
+
+/**
+ * Class name: IntDeque
+ * Description: a double ended queue of primitive ints, implemented by a
+ *              circular int array, which holds the cells of a tour as
+ *              row * colSize + col in 4 bytes each; the elements are
+ *              ordered from the front to the back
+ */
+public class IntDeque implements Iterable<Integer> {
+
+    private final int[] data;
+    private int size = 0;      // its actual number of elements inside
+    private int front = 0;     // the index of its front element
+
+    /**
+     * Constructor with specified capacity
+     * @param cap the capacity of this Deque
+     */
+    public IntDeque(int cap) {
+        data = new int[cap];
+    }
+
+    /**
+     * Constructor with the elements, where the array is used as it is
+     * @param data the elements, from the front to the back
+     */
+    private IntDeque(int[] data) {
+        this.data = data;
+        size = data.length;
+    }
+
+    /**
+     * Method to make a full Deque of the given elements without copying
+     * them, where the array must not be changed afterwards
+     * @param values the elements, from the front to the back
+     * @return the Deque
+     */
+    public static IntDeque wrap(int[] values) {
+        return new IntDeque(values);
+    }
+
+    /**
+     * Method to return the capacity
+     * @return its capacity
+     */
+    public int capacity() {
+        return data.length;
+    }
+
+    /**
+     * Method to return the size, i.e., the actual number of elements in
+     * this Deque
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Method to add an element in the front of this deque
+     * @param e the element to add in the front
+     * @return whether add successfully
+     */
+    public boolean addFront(int e) {
+        if (size >= data.length)
+            return false;
+        front = front == 0 ? data.length - 1 : front - 1;
+        data[front] = e;
+        size++;
+        return true;
+    }
+
+    /**
+     * Method to add an element in the back of this Deque
+     * @param e the element to add in the back
+     * @return whether add successfully
+     */
+    public boolean addBack(int e) {
+        if (size >= data.length)
+            return false;
+        data[index(size)] = e;
+        size++;
+        return true;
+    }
+
+    /**
+     * Method to remove the element in the front of the deque
+     * @return the element deleted
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public int removeFront() throws NoSuchElementException {
+        int e = peekFront();
+        front = front == data.length - 1 ? 0 : front + 1;
+        size--;
+        return e;
+    }
+
+    /**
+     * Method to remove the element in the back of the deque
+     * @return the element deleted
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public int removeBack() throws NoSuchElementException {
+        int e = peekBack();
+        size--;
+        return e;
+    }
+
+    /**
+     * Method to peek the front element
+     * @return the front element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public int peekFront() throws NoSuchElementException {
+        if (size == 0)
+            throw new NoSuchElementException();
+        return data[front];
+    }
+
+    /**
+     * Method to peek the back element
+     * @return the back element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public int peekBack() throws NoSuchElementException {
+        if (size == 0)
+            throw new NoSuchElementException();
+        return data[index(size - 1)];
+    }
+
+    /**
+     * Method to return an element by its position
+     * @param i the position, 0 for the front
+     * @return the element
+     * @throws IndexOutOfBoundsException if there is no such position
+     */
+    public int get(int i) throws IndexOutOfBoundsException {
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("index " + i + ", size "
+                    + size);
+        return data[index(i)];
+    }
+
+    /**
+     * Method to copy some elements into an array, at most two array copies
+     * @param from the position of the first element to copy
+     * @param dest the array to copy into
+     * @param destPos the index of dest to start at
+     * @param length the number of elements to copy
+     * @throws IndexOutOfBoundsException if there are no such elements
+     */
+    public void copyTo(int from, int[] dest, int destPos, int length)
+            throws IndexOutOfBoundsException {
+        if (from < 0 || length < 0 || from + length > size)
+            throw new IndexOutOfBoundsException("from " + from + ", length "
+                    + length + ", size " + size);
+        int start = index(from);
+        int first = Math.min(length, data.length - start);
+        System.arraycopy(data, start, dest, destPos, first);
+        System.arraycopy(data, 0, dest, destPos + first, length - first);
+    }
+
+    /**
+     * Method to return all elements as a new array
+     * @return the elements, from the front to the back
+     */
+    public int[] toArray() {
+        int[] result = new int[size];
+        copyTo(0, result, 0, size);
+        return result;
+    }
+
+    /**
+     * Method to return the elements as a stream, without copying them
+     * @return the elements, from the front to the back
+     */
+    public IntStream stream() {
+        return IntStream.range(0, size).map(i -> data[index(i)]);
+    }
+
+    @Override
+    /**
+     * Method to return an iterator from the front to the back, which does
+     * not box the elements when used by nextInt()
+     * @return the iterator
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < size;
+            }
+
+            @Override
+            public int nextInt() {
+                if (i >= size)
+                    throw new NoSuchElementException();
+                return data[index(i++)];
+            }
+        };
+    }
+
+    @Override
+    /**
+     * Method to return a String for this Deque
+     * @return a String
+     */
+    public String toString() {
+        StringBuilder sb = new StringBuilder(size * 4 + 2);
+        sb.append('[');
+        for (int i = 0; i < size; i++) {
+            if (i > 0)
+                sb.append("; ");
+            sb.append(data[index(i)]);
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Method to return the index into the array of a position
+     * @param i the position, 0 for the front
+     * @return the index
+     */
+    private int index(int i) {
+        int j = front + i;
+        return j >= data.length ? j - data.length : j;
+    }
+
+    @Override
+    /**
+     * Method to check whether two Deques have the same elements
+     * @param o the other object
+     * @return whether equal
+     */
+    public boolean equals(Object o) {
+        if (!(o instanceof IntDeque))
+            return false;
+        IntDeque other = (IntDeque) o;
+        return size == other.size && Arrays.equals(toArray(), other.toArray());
+    }
+
+    @Override
+    /**
+     * Method to return the hash code of the elements
+     * @return the hash code
+     */
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+}
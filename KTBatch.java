@@ -0,0 +1,389 @@
+/**
+ * File: KTBatch.java
+ * Description: the command-line batch solver, without JavaFX
+ * @author Zhiwei Jia
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class Name: KTBatch
+ * Description: solves jobs read from a file or the standard input, one a
+ *              line as "rows cols startRow startCol [mode]", separated by
+ *              spaces or commas, with # starting a comment; the jobs run
+ *              on a fixed pool of threads, with a bounded number waiting,
+ *              and each result is written as soon as it is done, so in the
+ *              order of completion, as JSON Lines or as binary records
+ *
+ *              Usage: java KTBatch [--threads N] [--format json|binary]
+ *                                  [--mode M] [--no-tour] [--no-table]
+ *                                  [--cache] [--timeout ms]
+ *                                  [--out file] [jobs-file | -]
+ *
+ *              A job still searching after the timeout, if given, is
+ *              cancelled and written as failed; the tours found are kept
+ *              in TourCache for the later jobs only with --cache, as the
+ *              cache never drops them
+ *
+ *              A binary record is the job number, the rows, the columns,
+ *              the starting row and column as ints, the mode and the result
+ *              as bytes, 1 if a tour is found, 2 if the search gave up
+ *              within its budget and 0 if there is none, the time in
+ *              nanoseconds and the nodes explored as longs, the number of
+ *              cells of the tour as an int, then its moves packed by
+ *              MoveCodec; a failed job is its number, -1 as an int and the
+ *              message as written by DataOutput.writeUTF; all numbers are
+ *              big-endian
+ */
+public class KTBatch {
+
+    // the jobs waiting for a thread, for each thread
+    private static final int QUEUE_PER_THREAD = 4;
+
+    private final TourMode defaultMode;
+    private final boolean binary;
+    private final boolean withTour;
+    private final TourTable table;
+    private final boolean useCache;
+
+    // the time a job may take, 0 for no limit, and the thread cancelling
+    // the jobs at their timeout
+    private final long timeoutMillis;
+    private final ScheduledExecutorService timer;
+
+    // the results, written by one job at a time
+    private final OutputStream out;
+    private final DataOutputStream data;
+
+    /**
+     * Constructor with the options
+     * @param defaultMode the mode of the jobs that give none
+     * @param binary whether to write binary records instead of JSON
+     * @param withTour whether to write the tours found
+     * @param table the precomputed tours, or null
+     * @param useCache whether to keep the tours found in TourCache
+     * @param timeoutMillis the time a job may take, 0 for no limit
+     * @param out where to write the results
+     */
+    KTBatch(TourMode defaultMode, boolean binary, boolean withTour,
+            TourTable table, boolean useCache, long timeoutMillis,
+            OutputStream out) {
+        this.defaultMode = defaultMode;
+        this.binary = binary;
+        this.withTour = withTour;
+        this.table = table;
+        this.useCache = useCache;
+        this.timeoutMillis = timeoutMillis;
+        this.out = out;
+        data = new DataOutputStream(out);
+        timer = timeoutMillis <= 0 ? null
+                : Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "KTBatch-timeout");
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * main method for running a batch
+     * @param args the options, see the description of this class
+     * @throws IOException if the jobs cannot be read or the results
+     *         cannot be written
+     * @throws InterruptedException if interrupted while waiting for jobs
+     */
+    public static void main(String[] args)
+            throws IOException, InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        TourMode mode = TourMode.WARNSDORFF;
+        boolean binary = false;
+        boolean withTour = true;
+        boolean useTable = true;
+        boolean useCache = false;
+        long timeout = 0;
+        String input = "-";
+        String output = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--format":
+                        binary = args[++i].equals("binary");
+                        break;
+                    case "--mode": mode = TourMode.parse(args[++i]); break;
+                    case "--no-tour": withTour = false; break;
+                    case "--no-table": useTable = false; break;
+                    case "--cache": useCache = true; break;
+                    case "--timeout":
+                        timeout = Long.parseLong(args[++i]);
+                        break;
+                    case "--out": output = args[++i]; break;
+                    default:
+                        if (args[i].startsWith("--"))
+                            throw new IllegalArgumentException(
+                                    "unknown option " + args[i]);
+                        input = args[i];
+                }
+            }
+        } catch (RuntimeException ex) {
+            System.err.println(ex.getMessage() == null ? ex.toString()
+                    : ex.getMessage());
+            System.err.println("Usage: java KTBatch [--threads N] "
+                    + "[--format json|binary] [--mode M] [--no-tour] "
+                    + "[--no-table] [--cache] [--timeout ms] [--out file] "
+                    + "[jobs-file | -]");
+            System.exit(1);
+        }
+
+        OutputStream os = new BufferedOutputStream(output == null
+                ? System.out : new FileOutputStream(output), 1 << 16);
+        KTBatch batch = new KTBatch(mode, binary, withTour,
+                useTable ? TourTable.loadDefault() : null, useCache, timeout,
+                os);
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                input.equals("-") ? System.in : new FileInputStream(input),
+                StandardCharsets.UTF_8))) {
+            batch.run(in, threads);
+        }
+        os.flush();
+        if (output != null)
+            os.close();
+    }
+
+    /**
+     * Method to run all jobs of a reader on a pool of threads, waiting
+     * until all are done
+     * @param in the jobs, one a line
+     * @param threads the number of threads
+     * @throws IOException if the jobs cannot be read
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void run(BufferedReader in, int threads)
+            throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Semaphore slots = new Semaphore(threads * (QUEUE_PER_THREAD + 1));
+        try {
+            String line;
+            int id = 0;
+            while ((line = in.readLine()) != null) {
+                int hash = line.indexOf('#');
+                String job = (hash < 0 ? line : line.substring(0, hash)).trim();
+                if (job.isEmpty())
+                    continue;
+
+                // wait while too many jobs are waiting
+                int jobId = id++;
+                slots.acquire();
+                pool.execute(() -> {
+                    try {
+                        solve(jobId, job);
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            if (timer != null)
+                timer.shutdownNow();
+        }
+    }
+
+    /**
+     * Method to solve one job and write its result
+     * @param id the number of the job, from 0 in the order read
+     * @param job the line of the job
+     */
+    private void solve(int id, String job) {
+        String[] f = job.split("[\\s,]+");
+        int rows, cols, row, col;
+        TourMode mode;
+        try {
+            rows = Integer.parseInt(f[0]);
+            cols = Integer.parseInt(f[1]);
+            row = Integer.parseInt(f[2]);
+            col = Integer.parseInt(f[3]);
+            mode = f.length > 4 ? TourMode.parse(f[4]) : defaultMode;
+            if (rows < 1 || cols < 1)
+                throw new IllegalArgumentException("no such board");
+        } catch (RuntimeException ex) {
+            writeError(id, job, ex.toString());
+            return;
+        }
+
+        KnightTour kt = mode.create(rows, cols);
+        kt.setUseCache(useCache);
+        kt.setTable(table);
+        ScheduledFuture<?> timeout = timer == null ? null
+                : timer.schedule(kt::cancel, timeoutMillis,
+                        TimeUnit.MILLISECONDS);
+        long t0 = System.nanoTime();
+        boolean found;
+        try {
+            found = kt.tour(row, col);
+        } catch (RuntimeException | OutOfMemoryError ex) {
+            writeError(id, job, ex.toString());
+            return;
+        } finally {
+            if (timeout != null)
+                timeout.cancel(false);
+        }
+        long nanos = System.nanoTime() - t0;
+        if (!found && kt.isCancelled()) {
+            writeError(id, job, "no answer in " + timeoutMillis + " ms");
+            return;
+        }
+        int[] tour = found && withTour ? kt.getTour().toArray() : new int[0];
+        try {
+            synchronized (this) {
+                if (binary)
+                    writeBinary(id, rows, cols, row, col, mode, found,
+                            kt.hasGivenUp(), nanos, kt.getNodeCount(), tour);
+                else
+                    out.write(json(id, rows, cols, row, col, mode, found,
+                            kt.hasGivenUp(), nanos, kt.getNodeCount(), tour)
+                            .getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException ex) {
+            System.err.println("Cannot write job " + id + ": " + ex);
+        }
+    }
+
+    /**
+     * Method to write a binary record
+     * @param id the number of the job
+     * @param rows the number of rows
+     * @param cols the number of columns
+     * @param row the starting row
+     * @param col the starting column
+     * @param mode the mode
+     * @param found whether a tour is found
+     * @param gaveUp whether the search gave up within its budget
+     * @param nanos the time taken
+     * @param nodes the nodes explored
+     * @param tour the tour, empty if none
+     * @throws IOException if it cannot be written
+     */
+    private void writeBinary(int id, int rows, int cols, int row, int col,
+            TourMode mode, boolean found, boolean gaveUp, long nanos,
+            long nodes, int[] tour) throws IOException {
+        int cells = tour.length;
+        data.writeInt(id);
+        data.writeInt(rows);
+        data.writeInt(cols);
+        data.writeInt(row);
+        data.writeInt(col);
+        data.writeByte(mode.ordinal());
+        data.writeByte(found ? 1 : gaveUp ? 2 : 0);
+        data.writeLong(nanos);
+        data.writeLong(nodes);
+        data.writeInt(cells);
+        if (cells > 1) {
+            byte[] moves = new byte[MoveCodec.packedBytes(cells - 1)];
+            MoveCodec.pack(tour, cols, moves, 0);
+            data.write(moves);
+        }
+    }
+
+    /**
+     * Method to return a result as a line of JSON
+     * @param id the number of the job, or -1 to leave it out
+     * @param rows the number of rows
+     * @param cols the number of columns
+     * @param row the starting row
+     * @param col the starting column
+     * @param mode the mode
+     * @param found whether a tour is found
+     * @param gaveUp whether the search gave up within its budget, which
+     *        is only written when it did
+     * @param nanos the time taken
+     * @param nodes the nodes explored
+     * @param tour the tour, empty if none
+     * @return the line
+     */
+    static String json(int id, int rows, int cols, int row, int col,
+            TourMode mode, boolean found, boolean gaveUp, long nanos,
+            long nodes, int[] tour) {
+        StringBuilder sb = new StringBuilder(64 + 6 * tour.length);
+        sb.append('{');
+        if (id >= 0)
+            sb.append("\"id\":").append(id).append(',');
+        sb.append("\"rows\":").append(rows)
+                .append(",\"cols\":").append(cols)
+                .append(",\"row\":").append(row)
+                .append(",\"col\":").append(col)
+                .append(",\"mode\":\"").append(mode).append('"')
+                .append(",\"found\":").append(found);
+        if (gaveUp)
+            sb.append(",\"gaveUp\":true");
+        sb.append(",\"millis\":").append(String.format(Locale.ROOT, "%.3f",
+                nanos / 1e6)).append(",\"nodes\":").append(nodes);
+        if (found && tour.length > 0) {
+            sb.append(",\"tour\":[");
+            for (int i = 0; i < tour.length; i++) {
+                if (i > 0)
+                    sb.append(',');
+                sb.append(tour[i]);
+            }
+            sb.append(']');
+        }
+        return sb.append("}\n").toString();
+    }
+
+    /**
+     * Method to write the result of a job that could not be solved
+     * @param id the number of the job
+     * @param job the line of the job
+     * @param message what went wrong
+     */
+    private synchronized void writeError(int id, String job, String message) {
+        try {
+            if (binary) {
+                data.writeInt(id);
+                data.writeInt(-1);
+                data.writeUTF(job + ": " + message);
+                return;
+            }
+            String line = "{\"id\":" + id + ",\"job\":\"" + escape(job)
+                    + "\",\"error\":\"" + escape(message) + "\"}\n";
+            out.write(line.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            System.err.println("Cannot write job " + id + ": " + ex);
+        }
+    }
+
+    /**
+     * Method to escape a String for JSON
+     * @param s the String
+     * @return the escaped String
+     */
+    static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\')
+                sb.append('\\').append(c);
+            else if (c < 0x20)
+                sb.append(String.format("\\u%04x", (int) c));
+            else
+                sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,332 @@
+/**
+ * File: KTBenchmark.java
+ * Description: a headless benchmark of the algorithms and the deques
+ * @author Zhiwei Jia
+ */
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.function.BiFunction;
+import java.util.function.IntSupplier;
+
+/**
+ * Class Name: KTBenchmark
+ * Description: measures, without JavaFX, the time to the first tour, the
+ *              nodes explored per second and the bytes allocated for every
+ *              algorithm, board size and starting cell, and the throughput
+ *              of the operations of MyDeque and IntDeque; every measurement
+ *              is repeated after some warm-up runs and the median is
+ *              reported, as a table or as CSV to keep for comparing
+ *
+ *              Usage: java KTBenchmark [--csv] [--reps N] [--warmup N]
+ *                                      [--sizes 5,6,8] [--engines a,b]
+ */
+public class KTBenchmark {
+
+    // the algorithms measured, by name
+    private static final String[] ENGINES = {"backtrack", "warnsdorff",
+            "parallel"};
+
+    // the number of operations of each run of a deque benchmark
+    private static final int DEQUE_OPS = 1 << 20;
+
+    // results are added into this, so no measured work can be dropped
+    private static volatile long sink;
+
+    private static boolean csv;
+    private static int reps = 5;
+    private static int warmup = 3;
+
+    /**
+     * main method for running the benchmarks
+     * @param args the options, see the description of this class
+     */
+    public static void main(String[] args) {
+        int[] sizes = {5, 6, 8};
+        String[] engines = ENGINES;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--csv": csv = true; break;
+                case "--reps": reps = Integer.parseInt(args[++i]); break;
+                case "--warmup": warmup = Integer.parseInt(args[++i]); break;
+                case "--sizes":
+                    sizes = Arrays.stream(args[++i].split(","))
+                            .mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "--engines": engines = args[++i].split(","); break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+        }
+
+        if (csv)
+            System.out.println("benchmark,board,start,found,median_us,"
+                    + "nodes_per_sec,alloc_bytes_per_op");
+        else
+            System.out.printf("%-12s %-7s %-6s %-6s %12s %14s %14s%n",
+                    "benchmark", "board", "start", "found", "median(us)",
+                    "nodes/sec", "alloc(B)/op");
+        for (String engine : engines)
+            for (int n : sizes)
+                for (int start = 0; start < n * n; start++)
+                    tourBenchmark(engine, n, start);
+
+        dequeBenchmarks();
+    }
+
+    /**
+     * Method to measure the finding of one tour
+     * @param engine the name of the algorithm
+     * @param n the size of the board
+     * @param start the starting cell
+     */
+    private static void tourBenchmark(String engine, int n, int start) {
+        BiFunction<Integer, Integer, KnightTour> make = factory(engine);
+        long[] times = new long[reps];
+        long[] allocs = new long[reps];
+        long nodes = 0;
+        boolean found = false;
+        for (int r = -warmup; r < reps; r++) {
+
+            // a new object each time, so nothing is kept between runs
+            KnightTour kt = make.apply(n, n);
+            long a0 = allocatedBytes();
+            long t0 = System.nanoTime();
+            found = kt.tour(start / n, start % n);
+            long t1 = System.nanoTime();
+            long a1 = allocatedBytes();
+            if (found)
+                sink += kt.getTour().peekBack();
+            if (r >= 0) {
+                times[r] = t1 - t0;
+                allocs[r] = a1 - a0;
+                nodes = kt.getNodeCount();
+            }
+        }
+        long time = median(times);
+        report(engine, n + "x" + n, String.valueOf(start), found, time,
+                nodes * 1e9 / Math.max(1, time), median(allocs));
+    }
+
+    /**
+     * Method to return how to create each algorithm object, without the
+     * precomputed table and the cache, so every run really searches
+     * @param engine the name of the algorithm
+     * @return the function from the size of the board to a new object
+     */
+    private static BiFunction<Integer, Integer, KnightTour> factory(
+            String engine) {
+        switch (engine) {
+            case "backtrack": return KnightTour::new;
+            case "warnsdorff": return WarnsdorffTour::new;
+            case "parallel": return ParallelKnightTour::new;
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+    }
+
+    /**
+     * Method to measure the operations of the deques, where both classes
+     * run the same operations, each run on deques of its own; an add runs
+     * until the deque is full and then goes on with a new one, and a
+     * remove is measured along with an add at the other end, on a deque
+     * kept half full
+     */
+    private static void dequeBenchmarks() {
+        int cap = 1 << 10;
+        int value = 42;
+        Integer boxed = value;
+
+        opsBenchmark("MyDeque.addFront", () -> {
+            MyDeque<Integer> d = new MyDeque<>(cap);
+            int k = 0;
+            for (int i = 0; i < DEQUE_OPS; i++) {
+                if (!d.addFront(boxed)) {
+                    d = new MyDeque<>(cap);
+                    d.addFront(boxed);
+                    k++;
+                }
+            }
+            return k;
+        });
+        opsBenchmark("MyDeque.addBack", () -> {
+            MyDeque<Integer> d = new MyDeque<>(cap);
+            int k = 0;
+            for (int i = 0; i < DEQUE_OPS; i++) {
+                if (!d.addBack(boxed)) {
+                    d = new MyDeque<>(cap);
+                    d.addBack(boxed);
+                    k++;
+                }
+            }
+            return k;
+        });
+        opsBenchmark("MyDeque.removeFront", () -> {
+            MyDeque<Integer> d = new MyDeque<>(cap);
+            for (int i = 0; i < cap / 2; i++)
+                d.addBack(boxed);
+            int k = 0;
+            for (int i = 0; i < DEQUE_OPS; i++) {
+                d.addBack(boxed);
+                k += d.removeFront();
+            }
+            return k;
+        });
+        opsBenchmark("MyDeque.removeBack", () -> {
+            MyDeque<Integer> d = new MyDeque<>(cap);
+            for (int i = 0; i < cap / 2; i++)
+                d.addFront(boxed);
+            int k = 0;
+            for (int i = 0; i < DEQUE_OPS; i++) {
+                d.addFront(boxed);
+                k += d.removeBack();
+            }
+            return k;
+        });
+        opsBenchmark("IntDeque.addFront", () -> {
+            IntDeque d = new IntDeque(cap);
+            int k = 0;
+            for (int i = 0; i < DEQUE_OPS; i++) {
+                if (!d.addFront(value)) {
+                    d = new IntDeque(cap);
+                    d.addFront(value);
+                    k++;
+                }
+            }
+            return k;
+        });
+        opsBenchmark("IntDeque.addBack", () -> {
+            IntDeque d = new IntDeque(cap);
+            int k = 0;
+            for (int i = 0; i < DEQUE_OPS; i++) {
+                if (!d.addBack(value)) {
+                    d = new IntDeque(cap);
+                    d.addBack(value);
+                    k++;
+                }
+            }
+            return k;
+        });
+        opsBenchmark("IntDeque.removeFront", () -> {
+            IntDeque d = new IntDeque(cap);
+            for (int i = 0; i < cap / 2; i++)
+                d.addBack(value);
+            int k = 0;
+            for (int i = 0; i < DEQUE_OPS; i++) {
+                d.addBack(value);
+                k += d.removeFront();
+            }
+            return k;
+        });
+        opsBenchmark("IntDeque.removeBack", () -> {
+            IntDeque d = new IntDeque(cap);
+            for (int i = 0; i < cap / 2; i++)
+                d.addFront(value);
+            int k = 0;
+            for (int i = 0; i < DEQUE_OPS; i++) {
+                d.addFront(value);
+                k += d.removeBack();
+            }
+            return k;
+        });
+
+        // toString of a full deque of 64 elements, a tour of 8x8
+        MyDeque<Integer> md64 = new MyDeque<>(64);
+        IntDeque id64 = new IntDeque(64);
+        for (int i = 0; i < 64; i++) {
+            md64.addBack(i);
+            id64.addBack(i);
+        }
+        opsBenchmark("MyDeque.toString", () -> {
+            int k = 0;
+            for (int i = 0; i < DEQUE_OPS >> 8; i++)
+                k += md64.toString().length();
+            return k;
+        }, DEQUE_OPS >> 8);
+        opsBenchmark("IntDeque.toString", () -> {
+            int k = 0;
+            for (int i = 0; i < DEQUE_OPS >> 8; i++)
+                k += id64.toString().length();
+            return k;
+        }, DEQUE_OPS >> 8);
+    }
+
+    /**
+     * Method to measure a run of DEQUE_OPS operations
+     * @param name the name of the benchmark
+     * @param run the run, returning a value to keep
+     */
+    private static void opsBenchmark(String name, IntSupplier run) {
+        opsBenchmark(name, run, DEQUE_OPS);
+    }
+
+    /**
+     * Method to measure a run of operations
+     * @param name the name of the benchmark
+     * @param run the run, returning a value to keep
+     * @param ops the number of operations of the run
+     */
+    private static void opsBenchmark(String name, IntSupplier run, int ops) {
+        long[] times = new long[reps];
+        long[] allocs = new long[reps];
+        for (int r = -warmup; r < reps; r++) {
+            long a0 = allocatedBytes();
+            long t0 = System.nanoTime();
+            sink += run.getAsInt();
+            long t1 = System.nanoTime();
+            long a1 = allocatedBytes();
+            if (r >= 0) {
+                times[r] = t1 - t0;
+                allocs[r] = a1 - a0;
+            }
+        }
+        long time = median(times);
+        report(name, "-", "-", true, time, ops * 1e9 / Math.max(1, time),
+                median(allocs) / ops);
+    }
+
+    /**
+     * Method to print one result
+     * @param name the name of the benchmark
+     * @param board the size of the board
+     * @param start the starting cell
+     * @param found whether a tour was found
+     * @param nanos the median time of a run
+     * @param rate the nodes, or operations, per second
+     * @param alloc the bytes allocated for each run, or operation
+     */
+    private static void report(String name, String board, String start,
+            boolean found, long nanos, double rate, long alloc) {
+        if (csv)
+            System.out.printf("%s,%s,%s,%b,%.1f,%.0f,%d%n", name, board,
+                    start, found, nanos / 1e3, rate, alloc);
+        else
+            System.out.printf("%-12s %-7s %-6s %-6b %12.1f %14.0f %14d%n",
+                    name, board, start, found, nanos / 1e3, rate, alloc);
+    }
+
+    /**
+     * Method to return the bytes allocated by this thread so far, where
+     * the threads of a parallel search are not counted
+     * @return the bytes, or 0 if the JVM does not tell
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) bean)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        return 0;
+    }
+
+    /**
+     * Method to return the median of some values
+     * @param values the values, which are sorted afterwards
+     * @return the median
+     */
+    private static long median(long[] values) {
+        Arrays.sort(values);
+        return values[values.length / 2];
+    }
+}
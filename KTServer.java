@@ -0,0 +1,523 @@
+/**
+ * File: KTServer.java
+ * Description: a local HTTP service for finding tours
+ * @author Zhiwei Jia
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class Name: KTServer
+ * Description: serves tours over HTTP on the loopback interface only, by
+ *              the built-in server of the JDK; every request runs on a
+ *              virtual thread where the JVM has them, or else on a cached
+ *              pool; identical requests arriving together wait for one
+ *              solve, and the answers are kept in an LRU cache bounded
+ *              both by their number and by CACHE_BYTES of JSON, where an
+ *              answer of more than MAX_CACHED_BYTES is never kept
+ *
+ *              The solves run on a pool of one platform thread per core,
+ *              not on the threads of the requests, so a long one never
+ *              holds a carrier of the virtual threads; each has a deadline
+ *              from when it is asked, after which it is cancelled and it
+ *              and the requests waiting for it are answered 503
+ *
+ *              GET /solve?rows=8&cols=8&row=0&col=0[&mode=warnsdorff]
+ *              answers the result as JSON, as written by KTBatch
+ *              GET /metrics answers the counters, the latencies and the
+ *              throughput as JSON
+ *
+ *              Usage: java KTServer [port] [cache size] [deadline ms]
+ */
+public class KTServer {
+
+    // the largest board served, as its tour is answered in one piece
+    static final int MAX_CELLS = 1 << 20;
+
+    // the time a solve may take by default, in milliseconds
+    static final long DEFAULT_DEADLINE_MILLIS = 10_000;
+
+    // the bytes of the answers kept, and of the largest one kept, as a
+    // tour of MAX_CELLS cells takes about 8 MB
+    static final long CACHE_BYTES = 64L << 20;
+    static final int MAX_CACHED_BYTES = 1 << 20;
+
+    // the latencies kept for the percentiles, the most recent ones
+    private static final int LATENCY_WINDOW = 1 << 14;
+
+    // the seconds counted for the recent throughput
+    private static final int RATE_WINDOW = 60;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final TourTable table;
+
+    // the threads of the solves, the one cancelling them at their
+    // deadline, and the deadline
+    private final ExecutorService solver;
+    private final ScheduledExecutorService timer;
+    private final long deadlineMillis;
+
+    // the solves going on, which later identical requests wait for
+    private final ConcurrentHashMap<String, CompletableFuture<String>>
+            inFlight = new ConcurrentHashMap<>();
+
+    // the answers kept, the least recently used dropped first, their
+    // largest number and their bytes
+    private final Map<String, String> cache =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private final int cacheSize;
+    private long cacheBytes;
+
+    // counters of the requests
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong solves = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final long startTime = System.nanoTime();
+
+    // the latest latencies in nanoseconds, and the requests done in each
+    // of the latest seconds
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private long latencyCount;
+    private final long[] perSecond = new long[RATE_WINDOW];
+    private final long[] secondOf = new long[RATE_WINDOW];
+
+    /**
+     * Constructor with the port and the size of the cache
+     * @param port the port on the loopback interface, 0 for any free one
+     * @param cacheSize the number of answers kept
+     * @throws IOException if the port cannot be bound
+     */
+    public KTServer(int port, int cacheSize) throws IOException {
+        this(port, cacheSize, DEFAULT_DEADLINE_MILLIS);
+    }
+
+    /**
+     * Constructor with the port, the size of the cache and the deadline of
+     * a solve
+     * @param port the port on the loopback interface, 0 for any free one
+     * @param cacheSize the number of answers kept
+     * @param deadlineMillis the time a solve may take, in milliseconds
+     * @throws IOException if the port cannot be bound
+     */
+    public KTServer(int port, int cacheSize, long deadlineMillis)
+            throws IOException {
+        this.deadlineMillis = deadlineMillis;
+        this.cacheSize = cacheSize;
+        table = TourTable.loadDefault();
+        server = HttpServer.create(new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), port), 0);
+        executor = newExecutor();
+        server.setExecutor(executor);
+        solver = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), r -> {
+                    Thread t = new Thread(r, "KTServer-solver");
+                    t.setDaemon(true);
+                    return t;
+                });
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "KTServer-deadline");
+            t.setDaemon(true);
+            return t;
+        });
+        server.createContext("/solve", this::solve);
+        server.createContext("/metrics", this::metrics);
+    }
+
+    /**
+     * main method for running the service
+     * @param args the port, 8080 by default, the size of the cache, 1024
+     *        by default, and the deadline of a solve in milliseconds
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int cacheSize = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+        long deadline = args.length > 2 ? Long.parseLong(args[2])
+                : DEFAULT_DEADLINE_MILLIS;
+        KTServer s = new KTServer(port, cacheSize, deadline);
+        SearchMetrics.register();
+        s.start();
+        System.out.println("Serving on http://localhost:" + s.getPort()
+                + "/solve");
+    }
+
+    /**
+     * Method to start serving
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Method to stop serving, letting the requests going on finish for at
+     * most a second
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        solver.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    /**
+     * Method to return the port served on
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Method to create an executor running each task on a new virtual
+     * thread, which needs Java 21, or else a cached pool of threads; it is
+     * looked up by reflection, as this code is compiled for older Java
+     * @return the executor
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Method to answer a request of /solve
+     * @param ex the exchange
+     * @throws IOException if the answer cannot be sent
+     */
+    private void solve(HttpExchange ex) throws IOException {
+        long t0 = System.nanoTime();
+        requests.incrementAndGet();
+        int status = 200;
+        String body;
+        try {
+            Map<String, String> q = query(ex.getRequestURI().getRawQuery());
+            int rows = Integer.parseInt(q.get("rows"));
+            int cols = Integer.parseInt(q.get("cols"));
+            int row = Integer.parseInt(q.get("row"));
+            int col = Integer.parseInt(q.get("col"));
+            TourMode mode = q.containsKey("mode")
+                    ? TourMode.parse(q.get("mode")) : TourMode.WARNSDORFF;
+            if (rows < 1 || cols < 1 || (long) rows * cols > MAX_CELLS)
+                throw new IllegalArgumentException("board of " + rows + "x"
+                        + cols + " not served");
+            body = answer(rows, cols, row, col, mode);
+        } catch (RuntimeException e) {
+            errors.incrementAndGet();
+            status = 400;
+            body = error(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TimeoutException) {
+                timeouts.incrementAndGet();
+                status = 503;
+            } else {
+                errors.incrementAndGet();
+                status = cause instanceof IllegalArgumentException ? 400 : 500;
+            }
+            body = error(cause);
+        }
+        send(ex, status, body);
+        record(System.nanoTime() - t0);
+    }
+
+    /**
+     * Method to write an error as JSON
+     * @param e the error
+     * @return the answer
+     */
+    private static String error(Throwable e) {
+        return "{\"error\":\"" + KTBatch.escape(e.toString()) + "\"}\n";
+    }
+
+    /**
+     * Method to answer a board and a start, from the cache, from a solve
+     * going on, or from a new solve
+     * @param rows the number of rows
+     * @param cols the number of columns
+     * @param row the starting row
+     * @param col the starting column
+     * @param mode the algorithm
+     * @return the answer as JSON
+     * @throws ExecutionException if the solve fails, or misses its
+     *         deadline, with a TimeoutException as the cause
+     */
+    private String answer(int rows, int cols, int row, int col,
+            TourMode mode) throws ExecutionException {
+        String key = rows + "," + cols + "," + row + "," + col + "," + mode;
+        String body;
+        synchronized (cache) {
+            body = cache.get(key);
+        }
+        if (body != null) {
+            hits.incrementAndGet();
+            return body;
+        }
+
+        // only the first of identical requests solves, the others wait
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> future = inFlight.putIfAbsent(key, mine);
+        if (future != null) {
+            coalesced.incrementAndGet();
+            return join(future);
+        }
+        solves.incrementAndGet();
+        KnightTour kt;
+        try {
+            kt = mode.create(rows, cols);
+        } catch (RuntimeException e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        kt.setUseCache(true);
+        kt.setTable(table);
+
+        // at the deadline, the solve is cancelled and all waiting for it
+        // are answered, whether it has started or not
+        ScheduledFuture<?> deadline = timer.schedule(() -> {
+            kt.cancel();
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(new TimeoutException("no answer in "
+                    + deadlineMillis + " ms"));
+        }, deadlineMillis, TimeUnit.MILLISECONDS);
+        try {
+            solver.execute(() -> solve(key, kt, row, col, mode, mine));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+        }
+        try {
+            return join(mine);
+        } finally {
+            deadline.cancel(false);
+        }
+    }
+
+    /**
+     * Method to solve on a thread of the solver, keeping the answer unless
+     * the deadline has passed
+     * @param key the key of the request
+     * @param kt the algorithm object
+     * @param row the starting row
+     * @param col the starting column
+     * @param mode the algorithm
+     * @param mine the future of the answer
+     */
+    private void solve(String key, KnightTour kt, int row, int col,
+            TourMode mode, CompletableFuture<String> mine) {
+        try {
+            if (mine.isDone())
+                return;
+            long t0 = System.nanoTime();
+            boolean found = kt.tour(row, col);
+            if (kt.isCancelled())
+                return;
+            String body = KTBatch.json(-1, kt.rowSize, kt.colSize, row, col,
+                    mode, found, kt.hasGivenUp(), System.nanoTime() - t0,
+                    kt.getNodeCount(), kt.getTour().toArray());
+            keep(key, body);
+            mine.complete(body);
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Method to wait for a solve going on
+     * @param future the solve
+     * @return its answer
+     * @throws ExecutionException if the solve fails
+     */
+    private static String join(CompletableFuture<String> future)
+            throws ExecutionException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Method to answer a request of /metrics
+     * @param ex the exchange
+     * @throws IOException if the answer cannot be sent
+     */
+    private void metrics(HttpExchange ex) throws IOException {
+        long[] lat;
+        long total;
+        long recent = 0;
+        long now = System.nanoTime();
+        long second = (now - startTime) / 1_000_000_000L;
+        synchronized (latencies) {
+            int n = (int) Math.min(latencyCount, LATENCY_WINDOW);
+            lat = Arrays.copyOf(latencies, n);
+            total = latencyCount;
+            for (int i = 0; i < RATE_WINDOW; i++)
+                if (second - secondOf[i] < RATE_WINDOW)
+                    recent += perSecond[i];
+        }
+        Arrays.sort(lat);
+        double uptime = (now - startTime) / 1e9;
+        double window = Math.min(uptime, RATE_WINDOW);
+        String body = String.format(Locale.ROOT, "{\"requests\":%d,"
+                + "\"cacheHits\":%d,\"coalesced\":%d,\"solves\":%d,"
+                + "\"errors\":%d,\"timeouts\":%d,\"inFlight\":%d,"
+                + "\"cached\":%d,\"cachedBytes\":%d,"
+                + "\"p50Millis\":%.3f,\"p90Millis\":%.3f,\"p99Millis\":%.3f,"
+                + "\"maxMillis\":%.3f,\"throughput\":%.1f,"
+                + "\"recentThroughput\":%.1f,\"uptimeSeconds\":%.1f}\n",
+                requests.get(), hits.get(), coalesced.get(), solves.get(),
+                errors.get(), timeouts.get(), inFlight.size(), cacheSize(),
+                cacheBytes(),
+                percentile(lat, 0.50), percentile(lat, 0.90),
+                percentile(lat, 0.99), percentile(lat, 1.0),
+                total / Math.max(uptime, 1e-9),
+                recent / Math.max(window, 1e-9), uptime);
+        send(ex, 200, body);
+    }
+
+    /**
+     * Method to return the number of answers kept
+     * @return the number of answers
+     */
+    private int cacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Method to return the bytes of the answers kept
+     * @return the bytes
+     */
+    private long cacheBytes() {
+        synchronized (cache) {
+            return cacheBytes;
+        }
+    }
+
+    /**
+     * Method to keep an answer unless it is too large, dropping the least
+     * recently used ones until the cache is within its bounds again
+     * @param key the key of the request
+     * @param body the answer, in JSON, one byte a character
+     */
+    private void keep(String key, String body) {
+        if (body.length() > MAX_CACHED_BYTES)
+            return;
+        synchronized (cache) {
+            String old = cache.put(key, body);
+            cacheBytes += body.length() - (old == null ? 0 : old.length());
+            Iterator<String> it = cache.values().iterator();
+            while ((cache.size() > cacheSize || cacheBytes > CACHE_BYTES)
+                    && it.hasNext()) {
+                cacheBytes -= it.next().length();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Method to record the latency of a request
+     * @param nanos the latency
+     */
+    private void record(long nanos) {
+        long second = (System.nanoTime() - startTime) / 1_000_000_000L;
+        int slot = (int) (second % RATE_WINDOW);
+        synchronized (latencies) {
+            latencies[(int) (latencyCount++ % LATENCY_WINDOW)] = nanos;
+            if (secondOf[slot] != second) {
+                secondOf[slot] = second;
+                perSecond[slot] = 0;
+            }
+            perSecond[slot]++;
+        }
+    }
+
+    /**
+     * Method to return a percentile of sorted latencies, in milliseconds
+     * @param sorted the latencies, sorted
+     * @param p the percentile, from 0 to 1
+     * @return the latency, or 0 if there is none
+     */
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0)
+            return 0;
+        int i = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, i)] / 1e6;
+    }
+
+    /**
+     * Method to send an answer as JSON
+     * @param ex the exchange
+     * @param status the HTTP status
+     * @param body the answer
+     * @throws IOException if it cannot be sent
+     */
+    private static void send(HttpExchange ex, int status, String body)
+            throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    /**
+     * Method to split the query of a URI into its parameters
+     * @param raw the query, or null
+     * @return the parameters by name
+     */
+    private static Map<String, String> query(String raw) {
+        Map<String, String> q = new HashMap<>();
+        if (raw == null)
+            return q;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0)
+                q.put(pair.substring(0, eq), pair.substring(eq + 1));
+        }
+        return q;
+    }
+}
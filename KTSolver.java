@@ -3,29 +3,27 @@
  * @author Zhiwei Jia
  */
 import javafx.animation.KeyFrame;
-import javafx.animation.PathTransition;
 import javafx.animation.Timeline;
 import javafx.application.Application;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
-import javafx.event.ActionEvent;
-import javafx.event.EventHandler;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.RadioButton;
+import javafx.scene.control.Spinner;
 import javafx.scene.control.ToggleGroup;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.BorderPane;
-import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Line;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
@@ -33,6 +31,10 @@ import javafx.scene.text.Text;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /**
  * Class Name: KTSolver
  * Description: a GUI class for finding Knight's Tour, a version for
@@ -40,39 +42,50 @@ import javafx.util.Duration;
  */
 public class KTSolver extends Application {
 
+    // the worker threads running the searches, off the application thread
+    private static final ExecutorService FINDER = 
+    		Executors.newCachedThreadPool(r -> {
+    			Thread t = new Thread(r, "tour-finder");
+    			t.setDaemon(true);
+    			return t;
+    		});
+
+    // the pieces offered, and their names; the camel never leaves the
+    // color it starts on, so it has no tour on a board of more than one
+    // cell, which is answered at once without a search
+    private static final Leaper[] PIECES = {Leaper.KNIGHT, Leaper.CAMEL,
+    		Leaper.ZEBRA, Leaper.GIRAFFE};
+    private static final String[] PIECE_NAMES = {"Knight", 
+    		"Camel (3,1), one color only, no tour", "Zebra (3,2)", 
+    		"Giraffe (4,1)"};
+    
     // some value relevant to the board
     private int rowSize;
     private int colSize;
     
+    // the piece touring the board
+    private Leaper leaper = Leaper.KNIGHT;
+    
     // the algorithm object
     private KnightTour kt;
     
+    // the precomputed tours of the boards offered, mapped at startup
+    private TourTable tourTable;
+    
     // some components of this GUI
-    private Button[][] bArr;
-    private StackPane[][] sArr;
+    private BoardCanvas board;
     private VBox vBox;
     private Button restart;
+    private Button skip;
     private Pane thePane;
     
-    // temp values of coordinates for path transition
-    private int tempX;
-    private int tempY;
-    
-    // the Knight's picture
-    private ImageView knightPic;
-    
-    // count of steps to move
-    private int stepCount;
-    
-    // for animation
-    private Timeline tl;
-    
-    // for current position of the board
-    private int currRow;
-    private int currCol;
+    // the most cells of a tour held between the search and the board
+    private static final int QUEUE_CAPACITY = 1 << 16;
     
-    // whether it's the first step
-    private boolean firstStep = true;
+    // the ongoing search, and the animation showing its progress
+    private Task<Boolean> finding;
+    private Timeline progressTl;
+    private Text progress;
     
     // command line arguments
     private String[] args = new String[2];
@@ -80,6 +93,7 @@ public class KTSolver extends Application {
     // some boolean indicators
     private BooleanProperty isFinished;
     private BooleanProperty notFound;
+    private BooleanProperty isFinding;
     private boolean canRetouch;
     
     // main scene and home scene
@@ -89,9 +103,6 @@ public class KTSolver extends Application {
     // whether the tool has been reset
     boolean afterReset;
     
-    // whether stop the process after pressing "home" button
-    boolean stop;
-    
     // whether it's standard 8x8 board
     boolean isStd;
     
@@ -113,9 +124,16 @@ public class KTSolver extends Application {
     		System.out.print("");
     	}  // no exception expected
 	
-    	// create an algorithm object
-    	kt = new KnightTour(rowSize, colSize);
-    	if (rowSize == 8)
+    	// create an algorithm object, one building the tour of the knight
+    	// in order on boards larger than the precomputed ones, so it is 
+    	// shown at once
+    	if (leaper.isKnight() && (rowSize > 8 || colSize > 8))
+    		kt = new DivideAndConquerTour(rowSize, colSize);
+    	else
+    		kt = new WarnsdorffTour(rowSize, colSize, leaper);
+    	kt.setUseCache(true);
+    	kt.setTable(tourTable);
+    	if (rowSize == 8 && colSize == 8)
     		isStd = true;
     	else
     		isStd = false;
@@ -141,6 +159,13 @@ public class KTSolver extends Application {
     	
     	// lock the size of the primary stage
     	priStage.setResizable(false);
+    	
+    	// map the precomputed tours once
+    	if (tourTable == null)
+    		tourTable = TourTable.loadDefault();
+
+    	// show the counters of all searches to JMX clients
+    	SearchMetrics.register();
 
         // setting the home scene
         BorderPane homeP = new BorderPane();
@@ -182,28 +207,56 @@ public class KTSolver extends Application {
         RadioButton eight = new RadioButton("8x8 board");
         RadioButton six = new RadioButton("6x6 board");
         RadioButton five = new RadioButton("5x5 board");
+        RadioButton hundred = new RadioButton("100x100 board");
         ToggleGroup group = new ToggleGroup();
         eight.setToggleGroup(group);
         six.setToggleGroup(group);
         five.setToggleGroup(group);
+        hundred.setToggleGroup(group);
         boxForChoice.setPadding(new Insets(30, 5, 5, 5));
-        boxForChoice.getChildren().addAll(eight, six, five);
+        boxForChoice.getChildren().addAll(eight, six, five, hundred);
+        
+        // a board of any size, and the piece
+        HBox boxForCustom = new HBox();
+        RadioButton custom = new RadioButton("Custom board");
+        custom.setToggleGroup(group);
+        Spinner<Integer> rows = new Spinner<>(1, 100, 6);
+        Spinner<Integer> cols = new Spinner<>(1, 100, 8);
+        rows.setPrefWidth(70);
+        cols.setPrefWidth(70);
+        rows.setEditable(true);
+        cols.setEditable(true);
+        ComboBox<String> piece = new ComboBox<>();
+        piece.getItems().addAll(PIECE_NAMES);
+        piece.setValue(PIECE_NAMES[0]);
+        boxForCustom.setPadding(new Insets(0, 5, 30, 5));
+        boxForCustom.getChildren().addAll(custom, rows, new Text("x"), cols, 
+        		piece);
+        
         Button start = new Button("Start");
         start.setOnAction(e -> {
+        	leaper = PIECES[Math.max(0, 
+        			Arrays.asList(PIECE_NAMES).indexOf(piece.getValue()))];
         	if (eight.isSelected())
-        		startProgram(8, priStage);
+        		startProgram(8, 8, priStage);
         	else if (six.isSelected())
-        		startProgram(6, priStage);
+        		startProgram(6, 6, priStage);
         	else if (five.isSelected())
-        		startProgram(5, priStage);
+        		startProgram(5, 5, priStage);
+        	else if (hundred.isSelected())
+        		startProgram(100, 100, priStage);
+        	else if (custom.isSelected())
+        		startProgram(rows.getValue(), cols.getValue(), priStage);
         });
         boxForChoice.getChildren().add(start);
         HBox.setMargin(start, new Insets(-4, 0, 0, 30));
-        HBox.setMargin(eight, new Insets(0, 0, 40, 165));
+        HBox.setMargin(eight, new Insets(0, 0, 10, 110));
+        HBox.setMargin(custom, new Insets(4, 0, 0, 110));
         boxForChoice.setSpacing(10);
+        boxForCustom.setSpacing(10);
         homeP.setTop(topPane);
         homeP.setCenter(centerPane);
-        homeP.setBottom(boxForChoice);
+        homeP.setBottom(new VBox(boxForChoice, boxForCustom));
             
         // show the stage
         priStage.setScene(homeScene);
@@ -213,12 +266,13 @@ public class KTSolver extends Application {
     
     /**
      * Method to change the scene and start the program
-     * @param boardSize the size of the board 
+     * @param rows the number of rows of the board
+     * @param cols the number of columns of the board
      * @param stage passing the primary stage
      */
-    private void startProgram(int boardSize, Stage stage) {
-    	args[0] = "" + boardSize;
-    	args[1] = "" + boardSize;
+    private void startProgram(int rows, int cols, Stage stage) {
+    	args[0] = "" + rows;
+    	args[1] = "" + cols;
     	processArgs(args);
     	changeScene(stage);    	
     	if (afterReset) 
@@ -231,60 +285,21 @@ public class KTSolver extends Application {
      */
     private void changeScene(Stage stage) { 
     	
-    	// create stackPane array
-    	sArr = new StackPane[rowSize][colSize];
-    	for (int i = 0; i < rowSize; i++) 
-    		for (int j = 0; j < colSize; j++) 
-    			sArr[i][j] = new StackPane();
-	
-    	// create a grid pane as the board
-    	GridPane gP = new GridPane();
-    	bArr = new Button[rowSize][colSize];
-    	for (int row = 0; row < rowSize; row++) {
-    		for (int col = 0; col < colSize; col++) {
-    			Rectangle sq = new Rectangle();
-		
-    			// set their color
-    			if ((row+col) % 2 == 0)
-    				sq.setFill(Color.LAVENDERBLUSH);
-    			else 
-    				sq.setFill(Color.LIGHTSKYBLUE);
-    			
-    			// different size for standard and non-standard board
-    			if (isStd) {
-    				sq.setWidth(56);
-    				sq.setHeight(56);
-    			} else {
-    				sq.setWidth(70);
-    				sq.setHeight(70);
-    			}
-    			
-    			// create buttons for each cell
-    			bArr[row][col] = new Button("", sq);
-    			sArr[row][col].getChildren().add(bArr[row][col]);
-    			gP.add(sArr[row][col], col, row);
-    		}
-    	}
-	
-    	// set the gap and padding
-    	gP.setHgap(10);
-    	gP.setVgap(10);
-    	gP.setPadding(new Insets(10,10,0,10));
+    	// one canvas as the board, with squares of 56 pixels and gaps of
+    	// 10 on the standard board, 70 and 10 on the smaller ones, and as
+    	// large as fits on larger ones
+    	double pitch = Math.min(isStd ? 66 : 80, 
+    			Math.min(660.0 / colSize, 580.0 / rowSize));
+    	board = new BoardCanvas(rowSize, colSize, pitch);
+    	board.setOnCellClicked(this::touch);
 	
     	// create panes
     	vBox = new VBox();
-    	vBox.getChildren().add(gP);
+    	vBox.setPadding(new Insets(10,10,0,10));
+    	vBox.getChildren().add(board);
     	thePane = new Pane();
     	thePane.getChildren().add(vBox);
 	
-    	// create a register for step into the algorithm
-    	TourFindingHandler handler = new TourFindingHandler();
-	
-    	// register the buttons of cells
-    	for (int i = 0; i < rowSize; i++) 
-    		for (int j = 0; j < colSize; j++) 
-    			bArr[i][j].setOnAction(handler);
-	
     	// set the notFound to false
     	notFound = new SimpleBooleanProperty();
     	notFound.set(false);
@@ -298,6 +313,11 @@ public class KTSolver extends Application {
         r.setVisible(false);
         restart = new Button("Restart (unavailable)");
         restart.setDisable(true);
+        
+        // the button to show the rest of the tour at once
+        skip = new Button("Skip");
+        skip.setDisable(true);
+        skip.setOnAction(e -> board.skip());
         isFinished = new SimpleBooleanProperty();
         isFinished.set(true);
         
@@ -307,30 +327,15 @@ public class KTSolver extends Application {
         canRetouch = true;
 	
         // change the restart button for different situation
-        isFinished.addListener(e1 -> {
-        	if (!isFinished.get()) {
-        		restart.setText("Restart (unavailable)");
-        		restart.setDisable(true);
-        	} else if (!notFound.get()) {
-        		restart.setText("Restart");
-        		restart.setDisable(false);
-        	} else {
-        		restart.setText("No such tour. Restart and try again!");
-                restart.setDisable(false);	    
-        	}
-        });	
-        notFound.addListener(e2 -> {
-        	if (!isFinished.get()) {
-        		restart.setText("Restart (unavailable)");
-        		restart.setDisable(true);
-        	} else if (!notFound.get()) {
-        		restart.setText("Restart");
-        		restart.setDisable(false);
-        	} else {
-        		restart.setText("No such tour. Restart and try again!");
-                restart.setDisable(false);	    
-        	}
-        });
+        isFinding = new SimpleBooleanProperty();
+        isFinding.set(false);
+        isFinished.addListener(e1 -> updateRestart());	
+        notFound.addListener(e2 -> updateRestart());
+        isFinding.addListener(e3 -> updateRestart());
+        
+        // the progress of an ongoing search
+        progress = new Text("");
+        progress.setFont(Font.font("Helvetica", FontWeight.NORMAL, 12));
 	
         // the home button
         Button home = new Button("Home");
@@ -338,16 +343,23 @@ public class KTSolver extends Application {
         
         // add the restart button and the home button to the board
         sP.getChildren().add(r);
-        hb.getChildren().addAll(restart, home);
+        hb.getChildren().addAll(skip, restart, home);
         sP.getChildren().add(hb);
+        sP.getChildren().add(progress);
+        StackPane.setAlignment(progress, Pos.CENTER_LEFT);
+        StackPane.setMargin(progress, new Insets(5, 0, 0, 10));
         vBox.getChildren().add(sP);
+        HBox.setMargin(skip, new Insets(5, 10, 0, 0));
         HBox.setMargin(restart, new Insets(5, 150, 0, 0));
         hb.setAlignment(Pos.BASELINE_RIGHT);
         HBox.setMargin(home, new Insets(5, 200, 0, 0));
 	
         // register the restart button
         restart.setOnAction(e -> {
-	    if (isFinished.get())
+	    if (isFinding.get()) {
+	    	cancelFinding();
+	    	restart();
+	    } else if (isFinished.get())
 	    	restart();
         });	
         
@@ -356,13 +368,33 @@ public class KTSolver extends Application {
         stage.setScene(mainScene);
     }
     
+    /**
+     * Method to change the restart button for different situation
+     */
+    private void updateRestart() {
+    	skip.setDisable(isFinished.get());
+    	if (isFinding.get()) {
+    		restart.setText("Restart (stop finding)");
+    		restart.setDisable(false);
+    	} else if (!isFinished.get()) {
+    		restart.setText("Restart (unavailable)");
+    		restart.setDisable(true);
+    	} else if (!notFound.get()) {
+    		restart.setText("Restart");
+    		restart.setDisable(false);
+    	} else {
+    		restart.setText("No such tour. Restart and try again!");
+    		restart.setDisable(false);	    
+    	}
+    }
+    
     /**
      * Method to back to home
      * @param stage passing the primary stage
      */
     private void backToHome(Stage stage) {
+    	cancelFinding();
         start(stage); 
-        stop = true;
     	afterReset = true;
     	
     	// to clear the ongoing process
@@ -370,125 +402,92 @@ public class KTSolver extends Application {
     }
     
     /**
-     * Method to show the result of the tour
+     * Method to start finding a tour on a worker thread, where the tour is
+     * shown on the board as the search streams it, and the progress is 
+     * shown during the finding
+     * @param row the row of the starting cell
+     * @param col the column of the starting cell
      */
-    private void showResult() {
-	
-    	// restart the showing process
-    	stop = false;
+    private void startFinding(int row, int col) {
     	
-    	// set the knight picture
-    	knightPic = new ImageView("knight's tour.png");
+    	// the algorithm object of this finding, since kt is replaced 
+    	// after a restart, and the queue of the cells it finds, which the
+    	// board starts to replay at once
+    	KnightTour solver = kt;
+    	TourQueue queue = new TourQueue(Math.min(QUEUE_CAPACITY, 
+    			rowSize * colSize), solver.getLeaper());
+    	board.play(queue, () -> isFinished.set(true));
+    	Task<Boolean> task = new Task<Boolean>() {
+    		@Override
+    		protected Boolean call() throws Exception {
+    			return solver.tour(row, col, queue);
+    		}
+    	};
     	
-    	// set the initial x and y coordinates
-    	currRow = kt.getTour().peekFront().row;
-        currCol = kt.getTour().removeFront().col;
-        tempX = currCol+1;
-        tempY = currRow+1;
-        
-        // different size for standard and non-standard board
-        if (isStd) {
-        	tempX = 86*tempX-37;
-        	tempY = 76*tempY-30;
-        } else {
-        	tempX = 100*tempX-45;
-        	tempY = 90*tempY-40;
-        }
-
-        // different size for standard and non-standard board
-        if (isStd) {
-        	knightPic.setFitHeight(56);
-        	knightPic.setFitHeight(56);
-        } else {
-        	knightPic.setFitHeight(70);
-        	knightPic.setFitHeight(70);
-        }
-        
-        // the first appearance of the knight
-        knightPic.setVisible(false);
-        thePane.getChildren().add(knightPic);
-        knightPic.setX(tempX-30);
-        knightPic.setY(tempY-30);
-	
-        // create an animation to show the tour
-        try {
-        	tl = new Timeline(new KeyFrame(new Duration(150), e -> {
-        		if (!stop) 
-        			moveKnight();
-        		else {
-        			tl.stop();
-        			tl.setCycleCount(0);
-        		}	
-        	}));
-        	tl.setCycleCount(kt.getNumCell()+1);
-            tl.play();
-        } catch (NullPointerException ex) { /* don't worry */ }
+    	// the replay goes on after the finding, unless there is no tour
+    	task.setOnSucceeded(e -> {
+    		if (task != finding)
+    			return;
+    		endFinding();
+    		if (!task.getValue()) {
+    			
+    			// if no solution exists, print out the information
+    			// and set the relevant values
+    			System.out.println("No Knight's Tour Found!");
+    			board.reset();
+    			isFinished.set(true);
+    			notFound.set(true);
+    		}
+    	});
+    	task.setOnFailed(e -> {
+    		if (task != finding)
+    			return;
+    		endFinding();
+    		board.reset();
+    		isFinished.set(true);
+    		notFound.set(true);
+    	});
+    	
+    	// show the counters of the search and the current depth
+    	progressTl = new Timeline(new KeyFrame(new Duration(100), e -> {
+    		SearchStats stats = solver.getStats();
+    		progress.setText(String.format("%,d nodes (%,.0f/s), "
+    				+ "%,d backtracks, %,d pruned, depth %d (max %d)",
+    				stats.getNodes(), stats.getNodesPerSecond(),
+    				stats.getBacktracks(), stats.getPrunes(),
+    				solver.getDepth(), stats.getMaxDepth()));
+    	}));
+    	progressTl.setCycleCount(Timeline.INDEFINITE);
+    	progressTl.play();
+    	
+    	finding = task;
+    	isFinding.set(true);
+    	FINDER.execute(task);
     }
     
     /**
-     * Method to implement the animation for showing the tour
-     * @throws NullPointerException
+     * Method to stop the ongoing finding, if any; the worker checks the
+     * cancellation by itself and becomes free shortly
      */
-    private void moveKnight() throws NullPointerException {
-        
-    	// some values relevant to the position
-    	int row = 0;
-    	int col = 0;
-    	int nextX = 0;
-    	int nextY = 0;
-	
-    	// move the knight to the first position
-    	if (firstStep) {
-            firstStep = false;
-        	// display the knight picture
-            knightPic.setVisible(true);
-            return;
-    	}
-    		
-    	// do not try to get new values for the last iteration
-    	if (stepCount < kt.getNumCell()-1) {
-    		try {
-    			row = kt.getTour().peekFront().row;
-    			col = kt.getTour().removeFront().col;
-    		} catch (NullPointerException ex) {}
-    	}
-	
-    	// some more important values 
-        nextX = col + 1;
-        nextY = row + 1;
-        
-        // different size for standard and non-standard board
-        if (isStd) {
-            nextX = 86*nextX-37;
-            nextY = 76*nextY-30;
-        } else {
-        	nextX = 100*nextX-45;
-        	nextY = 90*nextY-40;
-        }
-       
-        // do not execute the last translation
-        if (stepCount < kt.getNumCell()-1) {
-        	knightPic.setVisible(true);
-            Line l = new Line(tempX, tempY, nextX, nextY); 
-            new PathTransition(new Duration(130), l, knightPic).play(); 
-        }
-	    
-        // add the number to the board after the knight's moving
-        // not adding any number for the last move
-        Text t = new Text(++stepCount + "");
-        t.setFont(Font.font("Times New Roman", 20));
-        if (stepCount < rowSize*colSize)        	
-        	sArr[currRow][currCol].getChildren().add(t);  	
-	
-        // update the x and y coordinates and other values
-        tempX = nextX;
-        tempY = nextY;
-        currRow = row;
-        currCol = col;
-        
-        // check if we've done this finding
-        if (stepCount == kt.getNumCell())
-            isFinished.set(true);
+    private void cancelFinding() {
+    	if (finding == null)
+    		return;
+    	kt.cancel();
+    	finding.cancel(true);
+    	endFinding();
+    	isFinished.set(true);
+    }
+    
+    /**
+     * Method to clear the status of the ongoing finding
+     */
+    private void endFinding() {
+    	finding = null;
+    	if (progressTl != null)
+    		progressTl.stop();
+    	progressTl = null;
+    	progress.setText("");
+    	isFinding.set(false);
     }
     
     /**
@@ -496,94 +495,35 @@ public class KTSolver extends Application {
      */
     private void restart() {
 	
-    	// delete the old knight
-        thePane.getChildren().remove(knightPic);
-        knightPic = null;
-        System.gc();
-	
     	// update the status of the finding
     	notFound.set(false);
-    	firstStep = true;
-    	stepCount = 0;
     	canRetouch = true;
 	
     	// create a new KnightTour
     	processArgs(args);
 	
-    	// create a handler
-    	TourFindingHandler handler = new TourFindingHandler();
-	
-    	// update the board
-    	for (int i = 0; i < rowSize; i++) {
-    		for (int j = 0; j < colSize; j++) {
-    			sArr[i][j].getChildren().clear();
-    			Rectangle sq = new Rectangle();
-    			if ((i+j)% 2 == 0)
-    				sq.setFill(Color.LAVENDERBLUSH);
-    			else 
-    				sq.setFill(Color.LIGHTSKYBLUE);
-    	        
-    			// different size for standard and non-standard board
-    			if (isStd) {
-    				sq.setWidth(56);
-    				sq.setHeight(56);
-    			} else {
-    				sq.setWidth(70);
-    				sq.setHeight(70);
-    			}
-    	        
-    			bArr[i][j] = new Button("", sq);
-    			sArr[i][j].getChildren().add(bArr[i][j]);
-		
-    			// register these buttons 
-    			bArr[i][j].setOnAction(handler);
-    		}
-    	}
+    	// clear the board, stopping the replay if any
+    	board.reset();
+    	isFinished.set(true);
     }
     
     /**
-     * An inner class for event handling
+     * Method to start finding a tour from a cell touched on the board
+     * @param row the row of the cell
+     * @param col the column of the cell
      */
-    class TourFindingHandler implements EventHandler<ActionEvent> {
-	    
-    	@Override
-        public void handle(ActionEvent e) {
-	    
-    		// indicate that we are finding a tour
-    		System.out.println("Finding...");
-	    
-    		// this handler only works when not during a finding
-    		if (!isFinished.get() || !canRetouch)
-    			return;
-	    
-    		// update the status of this finding
-    		isFinished.set(false);
-    		canRetouch = false;
-	    
-    		// find the first position of this tour and call showResult()
-    	    Object sr = e.getSource();
-    	    int i,j;
-            for (i = 0; i < rowSize; i++) {
-            	for (j = 0; j < colSize; j++) {
-            		if (sr == bArr[i][j]) {
-            			if (kt.tour(i, j)) {
-            				showResult();
-            			} else { 
-		            
-            				// if no solution exists, print out the information
-            				// and set the relevant values
-            				System.out.println(
-            						"No Knight's Tour Found!");
-            				isFinished.set(true);
-            				notFound.set(true);   
-            			}
-		        
-            			// after finding the right starting position,
-            			// end this event handling
-            			return;
-            		}
-            	}
-            }		
-    	}
+    private void touch(int row, int col) {
+    	
+    	// indicate that we are finding a tour
+    	System.out.println("Finding...");
+    	
+    	// this handler only works when not during a finding
+    	if (!isFinished.get() || !canRetouch)
+    		return;
+    	
+    	// update the status of this finding
+    	isFinished.set(false);
+    	canRetouch = false;
+    	startFinding(row, col);
     }
 }
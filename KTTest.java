@@ -0,0 +1,485 @@
+/**
+ * File: KTTest.java
+ * Description: headless checks of the tours found by the algorithms
+ * @author Zhiwei Jia
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Class Name: KTTest
+ * Description: checks, without JavaFX, that every algorithm answers some
+ *              boards with a valid tour, i.e., every cell visited once and
+ *              every step a move of the piece, and that the features built
+ *              around the searches answer the same; every failed check is
+ *              printed, and the exit status is the number of them
+ *
+ *              Usage: java KTTest
+ */
+public class KTTest {
+
+    // the number of checks failed so far
+    private static int failures;
+
+    /**
+     * main method for running all checks
+     * @param args not used
+     * @throws IOException if a file cannot be written or read
+     */
+    public static void main(String[] args) throws IOException {
+        engines();
+        warnsdorff();
+        transposition();
+        cache();
+        table();
+        tourFile(Leaper.KNIGHT);
+        closedThin();
+        server();
+        enumeration();
+        checkpoint();
+        tourFile(Leaper.ZEBRA);
+        camel();
+        distributed();
+        System.out.println(failures == 0 ? "All checks passed"
+                : failures + " checks failed");
+        System.exit(failures);
+    }
+
+    /**
+     * Method to check every algorithm on some boards, from a corner and
+     * from a cell next to it
+     */
+    private static void engines() {
+        int[][] boards = {{5, 5}, {6, 6}, {8, 8}, {7, 10}};
+        for (TourMode mode : TourMode.values())
+            for (int[] b : boards)
+                for (int start = 0; start < 2; start++) {
+                    KnightTour kt = mode.create(b[0], b[1]);
+                    String name = mode + " " + b[0] + "x" + b[1] + " from (0, "
+                            + start + ")";
+
+                    // no tour from the other color of an odd board, and no
+                    // closed one on it at all
+                    boolean expected = b[0] * b[1] % 2 == 0 || start == 0;
+                    if (mode == TourMode.CLOSED)
+                        expected = b[0] * b[1] % 2 == 0;
+                    boolean found = kt.tour(0, start);
+                    check(found == expected, name + " found " + found);
+                    if (found)
+                        checkTour(kt, Leaper.KNIGHT, name);
+                    if (found && mode == TourMode.CLOSED)
+                        checkClosed(kt, name);
+                }
+    }
+
+    /**
+     * Method to check that Warnsdorff's rule, once it gives up, leaves the
+     * board to a complete search, as on 5x13 from (0, 4)
+     */
+    private static void warnsdorff() {
+        KnightTour kt = new WarnsdorffTour(5, 13);
+        check(kt.tour(0, 4), "warnsdorff 5x13 from (0, 4) found no tour");
+        checkTour(kt, Leaper.KNIGHT, "warnsdorff 5x13 from (0, 4)");
+        kt = new DivideAndConquerTour(5, 17);
+        if (kt.tour(1, 1))
+            checkTour(kt, Leaper.KNIGHT, "divide 5x17 from (1, 1)");
+
+        // a search cut short is told apart from a board with no tour
+        kt = new WarnsdorffTour(4, 20);
+        boolean found = kt.tour(1, 0);
+        check(found || kt.hasGivenUp(),
+                "warnsdorff 4x20 from (1, 0) neither found nor gave up");
+        kt = new WarnsdorffTour(5, 5);
+        check(!kt.tour(0, 1) && !kt.hasGivenUp(),
+                "warnsdorff 5x5 from (0, 1) gave up");
+    }
+
+    /**
+     * Method to check that the states with no tour are remembered, and
+     * that the search pruning them still finds the tours there are, and
+     * no others
+     */
+    private static void transposition() {
+        TranspositionTable table = new TranspositionTable(1 << 10);
+        long visited = 1L << 0 | 1L << 9;
+        long hash = TranspositionTable.visitedKey(0)
+                ^ TranspositionTable.visitedKey(9)
+                ^ TranspositionTable.currentKey(9);
+        check(!table.contains(hash, visited, 9), "empty table holds a state");
+        table.put(hash, visited, 9, 30);
+        check(table.contains(hash, visited, 9), "table lost a state");
+        check(!table.contains(hash, visited, 0), "table holds another cell");
+
+        // no tour from (1, 0) of 4x8, which the enumeration, never pruning
+        // a transposition, agrees on
+        KnightTour kt = new KnightTour(4, 8);
+        check(!kt.tour(1, 0), "4x8 from (1, 0) found a tour");
+        check(kt.getStats().getPrunes(SearchStats.Prune.TRANSPOSITION) > 0,
+                "4x8 from (1, 0) pruned no transposition");
+        check(new KnightTour(4, 8).tours(1, 0).count() == 0,
+                "4x8 from (1, 0) enumerated a tour");
+        kt = new KnightTour(4, 9);
+        check(kt.tour(0, 0), "4x9 from (0, 0) found no tour");
+        checkTour(kt, Leaper.KNIGHT, "4x9 from (0, 0)");
+    }
+
+    /**
+     * Method to check that a tour kept in the cache answers the starts
+     * symmetric to its own, turned to start from them, without a search
+     */
+    private static void cache() {
+        TourCache.clear();
+        int[][] starts = {{6, 6, 0, 1, 1, 0}, {5, 6, 0, 0, 4, 5}};
+        for (int[] s : starts) {
+            String name = "cache " + s[0] + "x" + s[1] + " from (" + s[4]
+                    + ", " + s[5] + ")";
+            KnightTour kt = new KnightTour(s[0], s[1]);
+            kt.setUseCache(true);
+            check(kt.tour(s[2], s[3]), name + " found no tour to keep");
+            kt = new KnightTour(s[0], s[1]);
+            kt.setUseCache(true);
+            check(kt.tour(s[4], s[5]), name + " found no tour");
+            check(kt.getNodeCount() == 0, name + " explored "
+                    + kt.getNodeCount() + " nodes");
+            check(kt.getTour().get(0) == s[4] * s[1] + s[5],
+                    name + " started from " + kt.getTour().get(0));
+            checkTour(kt, Leaper.KNIGHT, name);
+        }
+        check(TourCache.size() == starts.length,
+                "cache kept " + TourCache.size() + " tours");
+        TourCache.clear();
+        check(TourCache.get(6, 6, 1) == null, "cache kept a tour cleared");
+    }
+
+    /**
+     * Method to check that the table shipped answers every starting cell
+     * of its boards with a valid tour from it, and none where there is no
+     * tour
+     */
+    private static void table() {
+        TourTable table = TourTable.loadDefault();
+        check(table != null, "no table of tours");
+        if (table == null)
+            return;
+        for (int n : new int[] {5, 6, 8}) {
+            check(table.covers(n, n), "table misses " + n + "x" + n);
+            if (!table.covers(n, n))
+                continue;
+            for (int start = 0; start < n * n; start++) {
+                String name = "table " + n + "x" + n + " from " + start;
+                int[] tour = table.lookup(n, n, start);
+
+                // only the color of the corners has tours on 5x5
+                boolean expected = n % 2 == 0
+                        || (start / n + start % n) % 2 == 0;
+                check((tour != null) == expected, name + " found "
+                        + (tour != null));
+                if (tour == null)
+                    continue;
+                check(tour[0] == start, name + " started from " + tour[0]);
+                checkPath(tour, n, n, Leaper.KNIGHT, name);
+            }
+        }
+    }
+
+    /**
+     * Method to check that a tour of a piece written to a tour file is
+     * read back the same, with the leaper of the file
+     * @param leaper the piece
+     * @throws IOException if the file cannot be written or read
+     */
+    private static void tourFile(Leaper leaper) throws IOException {
+        KnightTour kt = new WarnsdorffTour(10, 10, leaper, null);
+        String name = leaper + " 10x10 from (0, 0)";
+        Path file = Files.createTempFile("kttest", ".ktf");
+        try {
+            boolean found;
+            try (TourFile.Writer out = new TourFile.Writer(file, leaper)) {
+                found = kt.tour(0, 0, out);
+            }
+            check(found, name + " found no tour");
+            if (!found)
+                return;
+            checkTour(kt, leaper, name);
+            try (TourFile tf = TourFile.open(file)) {
+                check(leaper.equals(tf.getLeaper()),
+                        "tour file read the leaper " + tf.getLeaper());
+                check(tf.length() == kt.getTour().size(),
+                        "tour file read " + tf.length() + " cells");
+                for (int k = 0; k < kt.getTour().size(); k++)
+                    if (tf.get(k) != kt.getTour().get(k)) {
+                        check(false, "tour file read cell " + tf.get(k)
+                                + " at step " + k);
+                        break;
+                    }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Method to check the closed tours of the boards of 3 rows or 3
+     * columns, which only the even ones of at least 10 cells a side have
+     */
+    private static void closedThin() {
+        for (int n = 3; n <= 40; n++)
+            for (int turned = 0; turned < 2; turned++) {
+                int rows = turned == 0 ? 3 : n;
+                int cols = turned == 0 ? n : 3;
+                String name = "closed " + rows + "x" + cols;
+                KnightTour kt = new ClosedTour(rows, cols);
+                boolean found = kt.tour(0, 0);
+                check(found == (n % 2 == 0 && n >= 10),
+                        name + " found " + found);
+                if (found) {
+                    checkTour(kt, Leaper.KNIGHT, name);
+                    checkClosed(kt, name);
+                }
+            }
+    }
+
+    /**
+     * Method to check that the service answers a board with a tour, a
+     * repeated request from its cache, a bad request with 400, a solve
+     * past its deadline with 503, and counts them all
+     * @throws IOException if the service cannot be reached
+     */
+    private static void server() throws IOException {
+        KTServer server = new KTServer(0, 16, 200);
+        server.start();
+        try {
+            int port = server.getPort();
+            String solve = "/solve?rows=6&cols=6&row=0&col=0";
+            for (int i = 0; i < 2; i++)
+                check(get(port, solve, 200).contains("\"found\":true"),
+                        "server found no tour on 6x6");
+            get(port, "/solve?rows=0&cols=6&row=0&col=0", 400);
+            get(port, "/solve?rows=six&cols=6&row=0&col=0", 400);
+            get(port, "/solve?rows=4&cols=20&row=1&col=0&mode=backtrack",
+                    503);
+            String metrics = get(port, "/metrics", 200);
+            for (String field : new String[] {"\"requests\":5",
+                    "\"cacheHits\":1", "\"errors\":2", "\"timeouts\":1"})
+                check(metrics.contains(field), "server metrics miss "
+                        + field + ": " + metrics.trim());
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Method to send a GET request to the service, checking the status of
+     * its answer
+     * @param port the port of the service
+     * @param path the path and the query
+     * @param status the status expected
+     * @return the body of the answer
+     * @throws IOException if the service cannot be reached
+     */
+    private static String get(int port, String path, int status)
+            throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http",
+                "localhost", port, path).openConnection();
+        try {
+            int code = conn.getResponseCode();
+            check(code == status, path + " answered " + code);
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (InputStream in = code < 400 ? conn.getInputStream()
+                    : conn.getErrorStream()) {
+                byte[] buf = new byte[4096];
+                for (int n; in != null && (n = in.read(buf)) > 0; )
+                    body.write(buf, 0, n);
+            }
+            return body.toString("UTF-8");
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    /**
+     * Method to check that the stream of all tours from a cell gives each
+     * of them once, in sequence and in parallel, as on 5x5 from a corner,
+     * which has 304 tours
+     */
+    private static void enumeration() {
+        for (int parallel = 0; parallel < 2; parallel++) {
+            String name = (parallel == 0 ? "tours" : "parallel tours")
+                    + " 5x5 from (0, 0)";
+            KnightTour kt = new KnightTour(5, 5);
+            List<int[]> tours = (parallel == 0 ? kt.tours(0, 0)
+                    : kt.tours(0, 0).parallel()).collect(Collectors.toList());
+            check(tours.size() == 304, name + " gave " + tours.size());
+            Set<List<Integer>> distinct = new HashSet<>();
+            for (int[] tour : tours) {
+                checkPath(tour, 5, 5, Leaper.KNIGHT, name);
+                distinct.add(Arrays.stream(tour).boxed()
+                        .collect(Collectors.toList()));
+            }
+            check(distinct.size() == tours.size(), name + " gave "
+                    + (tours.size() - distinct.size()) + " twice");
+        }
+    }
+
+    /**
+     * Method to check that a search cancelled midway keeps its checkpoint,
+     * and that another object asked for the same tour goes on from it to
+     * the tour found without stopping, and then deletes it
+     * @throws IOException if the checkpoint file cannot be made
+     */
+    private static void checkpoint() throws IOException {
+        KnightTour kt = new KnightTour(4, 12);
+        check(kt.tour(0, 0), "4x12 from (0, 0) found no tour");
+        int[] whole = kt.getTour().toArray();
+        long nodes = kt.getNodeCount();
+
+        Path file = Files.createTempFile("kttest", ".ckp");
+        Files.delete(file);
+        try {
+            KnightTour stopped = new KnightTour(4, 12);
+            stopped.setCheckpoint(file, 50);
+            stopped.setListener((source, stats) -> {
+                if (stats.getNodes() >= nodes / 4)
+                    source.cancel();
+            });
+            check(!stopped.tour(0, 0), "4x12 from (0, 0) was not cancelled");
+            check(Files.exists(file), "cancelled search kept no checkpoint");
+
+            // the first report of a search going on is of the nodes saved
+            KnightTour resumed = new KnightTour(4, 12);
+            resumed.setCheckpoint(file, 50);
+            long[] first = {-1};
+            resumed.setListener((source, stats) -> {
+                if (first[0] < 0)
+                    first[0] = stats.getNodes();
+            });
+            check(resumed.tour(0, 0), "resumed 4x12 found no tour");
+            check(Arrays.equals(resumed.getTour().toArray(), whole),
+                    "resumed 4x12 found another tour");
+            check(first[0] >= stopped.getNodeCount(), "resumed 4x12 started "
+                    + "from " + first[0] + " nodes, not the ones saved");
+            check(!Files.exists(file), "finished search kept its checkpoint");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Method to check that the camel, which never leaves its color, is
+     * answered with no tour before any search
+     */
+    private static void camel() {
+        KnightTour kt = new WarnsdorffTour(10, 10, Leaper.CAMEL, null);
+        check(!kt.tour(0, 0), "camel 10x10 found a tour");
+        check(kt.getNodeCount() == 0, "camel 10x10 explored "
+                + kt.getNodeCount() + " nodes");
+        check(!kt.hasGivenUp(), "camel 10x10 gave up");
+    }
+
+    /**
+     * Method to check that the search split among worker processes counts
+     * the tours of 5x5 from a corner, all 304 open and none closed, and
+     * finds a valid one
+     */
+    private static void distributed() {
+        DistributedKnightTour kt = new DistributedKnightTour(5, 5, 2);
+        long[] counts = kt.count(0, 0);
+        check(counts != null && counts[0] == 304 && counts[1] == 0,
+                "distributed 5x5 from (0, 0) counted "
+                + Arrays.toString(counts));
+        kt = new DistributedKnightTour(5, 5, 2);
+        check(kt.tour(0, 0), "distributed 5x5 from (0, 0) found no tour");
+        checkTour(kt, Leaper.KNIGHT, "distributed 5x5 from (0, 0)");
+    }
+
+    /**
+     * Method to check that the tour found visits every cell once, with a
+     * move of the piece at every step
+     * @param kt the algorithm object holding the tour
+     * @param leaper the piece
+     * @param name the name of the check
+     */
+    private static void checkTour(KnightTour kt, Leaper leaper, String name) {
+        checkPath(kt.getTour().toArray(), kt.rowSize, kt.colSize, leaper,
+                name);
+    }
+
+    /**
+     * Method to check that a tour visits every cell of a board once, with
+     * a move of the piece at every step
+     * @param tour the tour as cell indices
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param leaper the piece
+     * @param name the name of the check
+     */
+    private static void checkPath(int[] tour, int rowSize, int colSize,
+            Leaper leaper, String name) {
+        int numCell = rowSize * colSize;
+        if (tour.length != numCell) {
+            check(false, name + ": " + tour.length + " cells of " + numCell);
+            return;
+        }
+        boolean[] visited = new boolean[numCell];
+        for (int i = 0; i < numCell; i++) {
+            int cell = tour[i];
+            if (cell < 0 || cell >= numCell || visited[cell]) {
+                check(false, name + ": cell " + cell + " at step " + i);
+                return;
+            }
+            visited[cell] = true;
+            if (i > 0 && !isMove(tour[i - 1], cell, colSize, leaper)) {
+                check(false, name + ": no move into step " + i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Method to check that the tour found ends a move away from its start
+     * @param kt the algorithm object holding the tour
+     * @param name the name of the check
+     */
+    private static void checkClosed(KnightTour kt, String name) {
+        IntDeque tour = kt.getTour();
+        check(isMove(tour.get(tour.size() - 1), tour.get(0), kt.colSize,
+                Leaper.KNIGHT), name + ": not closed");
+    }
+
+    /**
+     * Method to check whether two cells are a move of a piece apart
+     * @param from one cell
+     * @param to the other cell
+     * @param colSize the number of columns of the board
+     * @param leaper the piece
+     * @return whether they are
+     */
+    private static boolean isMove(int from, int to, int colSize,
+            Leaper leaper) {
+        return leaper.moveIndex(to / colSize - from / colSize,
+                to % colSize - from % colSize) >= 0;
+    }
+
+    /**
+     * Method to count a check, printing it if it failed
+     * @param ok whether it passed
+     * @param message what failed
+     */
+    private static void check(boolean ok, String message) {
+        if (!ok) {
+            failures++;
+            System.out.println("FAILED: " + message);
+        }
+    }
+}
@@ -0,0 +1,936 @@
+/**
+ * File: KnightTour.java
+ * Description: the algorithm for finding an open Knight's Tour
+ * @author Zhiwei Jia
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Class Name: KnightTour
+ * Description: finds an open Knight's Tour from a given starting cell by a
+ *              backtracking graph search, trying the next moves in the order
+ *              of their onward degree; the search can be cancelled from
+ *              another thread and reports its progress while running; the
+ *              piece may be any Leaper, whose moves on the board are read
+ *              from the MoveGraph shared by all searches of the board;
+ *              some cells may be blocked, and the tour visits the others,
+ *              once the layout passes the checks of the graph; a board of
+ *              at most 64 cells is searched by BitSearch, and a larger one
+ *              on arrays, which drops a move leaving a free cell with no
+ *              way in or two cells that can only end the tour, but not one
+ *              cutting the free cells in pieces, which would take a flood
+ *              fill of the whole board at every node
+ */
+public class KnightTour {
+
+    // the eight moves of a knight, as row and column offsets
+    static final int[] ROW_MOVES = {-2, -1, 1, 2, 2, 1, -1, -2};
+    static final int[] COL_MOVES = {1, 2, 2, 1, -1, -2, -2, -1};
+
+    // how many nodes to expand between two checks of the cancel flag
+    protected static final int CHECK_INTERVAL = 1 << 12;
+
+    // some value relevant to the board, where the number of cells is -1
+    // on a board of more cells than an array holds, which is only toured
+    // to a TourSink by an algorithm streaming it
+    protected final int rowSize;
+    protected final int colSize;
+    protected final int numCell;
+
+    // the number of cells the tour visits, the ones not blocked
+    protected final int numFree;
+
+    // the piece touring the board, the cells blocked, if any, and the
+    // graph of its moves, built when first searched
+    protected final Leaper leaper;
+    private final BitSet blocked;
+    private volatile MoveGraph graph;
+
+    // the tour found, from the starting cell to the last one, as cell
+    // indices, i.e., row * colSize + col
+    protected IntDeque tour;
+
+    // whether to look up and keep the tours in TourCache
+    private boolean useCache;
+
+    // the precomputed tours to answer from, if any
+    private TourTable table;
+
+    // set by another thread to stop an ongoing search
+    private volatile boolean cancelled;
+
+    // set when the last search gave up within its budget, so no tour
+    // found does not mean there is none
+    private volatile boolean gaveUp;
+
+    // the bitboard search of each searching thread, kept with its table
+    // of states with no tour until the search ends, when all are dropped
+    private final ConcurrentHashMap<Thread, BitSearch> bitSearches =
+            new ConcurrentHashMap<>();
+
+    // progress of an ongoing search, for showing to the user, and the
+    // one told of it, if any
+    private SearchStats stats;
+    private volatile int depth;
+    private volatile SearchListener listener;
+
+    // where and how often to save the frontier of the search, if at all,
+    // the thread whose search it is and when the next save is due
+    private volatile Path checkpointFile;
+    private long checkpointNanos;
+    private volatile Thread checkpointThread;
+    private long nextCheckpoint;
+
+    /**
+     * Constructor with the size of the board
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     */
+    public KnightTour(int rowSize, int colSize) {
+        this(rowSize, colSize, Leaper.KNIGHT);
+    }
+
+    /**
+     * Constructor with the size of the board and the piece
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param leaper the piece touring the board
+     */
+    public KnightTour(int rowSize, int colSize, Leaper leaper) {
+        this(rowSize, colSize, leaper, null);
+    }
+
+    /**
+     * Constructor with the size of the board, the piece and the cells
+     * blocked
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param leaper the piece touring the board
+     * @param blocked the cells blocked, as row * colSize + col, or null
+     *        for none
+     * @throws IllegalArgumentException if a cell blocked is not on the
+     *         board
+     */
+    public KnightTour(int rowSize, int colSize, Leaper leaper, 
+            BitSet blocked) throws IllegalArgumentException {
+        long cells = (long) rowSize * colSize;
+        this.rowSize = rowSize;
+        this.colSize = colSize;
+        this.numCell = cells > Integer.MAX_VALUE ? -1 : (int) cells;
+        this.leaper = leaper;
+        if (blocked != null && blocked.length() > cells)
+            throw new IllegalArgumentException("cell " + (blocked.length() - 1)
+                    + " is not on the board of " + rowSize + "x" + colSize);
+        this.blocked = blocked == null || blocked.isEmpty() ? null 
+                : (BitSet) blocked.clone();
+        this.numFree = numCell - (this.blocked == null ? 0 
+                : this.blocked.cardinality());
+        tour = new IntDeque(0);
+        stats = new SearchStats(numCell);
+    }
+
+    /**
+     * Method to find a tour starting from the given cell
+     * @param row the row of the starting cell
+     * @param col the column of the starting cell
+     * @return whether a tour is found, false if there is no such tour or
+     *         the search has been cancelled
+     * @throws IllegalArgumentException if the board has more cells than
+     *         an array holds
+     */
+    public boolean tour(int row, int col) throws IllegalArgumentException {
+        checkSize();
+        begin();
+        boolean found = false;
+        try {
+            found = solve(row, col);
+        } finally {
+            finish(found);
+        }
+        return found;
+    }
+
+    /**
+     * Method to find a tour starting from the given cell, from the table,
+     * the cache or a search
+     * @param row the row of the starting cell
+     * @param col the column of the starting cell
+     * @return whether a tour is found
+     */
+    private boolean solve(int row, int col) {
+        tour = new IntDeque(0);
+        if (row < 0 || row >= rowSize || col < 0 || col >= colSize)
+            return false;
+
+        // every board is checked before searching, as a layout with no
+        // tour, such as any of a leaper bound to the color it starts on,
+        // would otherwise be searched to the end
+        int start = row * colSize + col;
+        SearchStats.Prune infeasible = blocked != null && blocked.get(start)
+                ? SearchStats.Prune.DEAD_CELL : infeasibility(start);
+        if (infeasible != null) {
+            synchronized (this) {
+                stats.prune(infeasible, 1);
+            }
+            return false;
+        }
+
+        // the path is kept as cell indices, i.e., row * colSize + col; the
+        // table and the cache only hold tours of the knight on whole boards
+        boolean knight = leaper.isKnight() && blocked == null;
+        if (table != null && knight && table.covers(rowSize, colSize)) {
+            int[] kept = table.lookup(rowSize, colSize, start);
+            if (kept == null)
+                return false;
+            commit(kept);
+            return true;
+        }
+        if (useCache && knight) {
+            int[] kept = TourCache.get(rowSize, colSize, start);
+            if (kept != null) {
+                commit(kept);
+                return true;
+            }
+        }
+        int[] path = new int[numFree];
+        path[0] = start;
+        if (!findPath(path))
+            return false;
+        if (useCache && knight)
+            TourCache.put(rowSize, colSize, path);
+        commit(path);
+        return true;
+    }
+
+    /**
+     * Method to start counting a new search
+     */
+    protected synchronized void begin() {
+        stats = new SearchStats(numCell);
+        stats.startNanos = System.nanoTime();
+        depth = 0;
+        gaveUp = false;
+    }
+
+    /**
+     * Method to end counting a search, adding its counters to the ones of
+     * the process and telling the listener
+     * @param found whether a tour was found
+     */
+    protected void finish(boolean found) {
+        SearchStats s;
+        synchronized (this) {
+            stats.endNanos = System.nanoTime();
+            s = stats.copy();
+        }
+
+        // drop the tables, so an object not searching holds none
+        bitSearches.clear();
+        SearchMetrics.get().record(s, found);
+        SearchListener l = listener;
+        if (l != null)
+            l.onFinish(this, s, found);
+    }
+
+    /**
+     * Method to set the one told of the progress of the searches, which
+     * is called from the searching threads
+     * @param listener the listener, or null for none
+     */
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Method to find a tour starting from the given cell and stream it to
+     * a sink, as moves of the leaper; this one finds the whole tour first,
+     * while an algorithm that builds it in order may stream it as it goes,
+     * in bounded memory
+     * @param row the row of the starting cell
+     * @param col the column of the starting cell
+     * @param sink the sink to receive the tour, only if one is found
+     * @return whether a tour is found
+     * @throws IOException if the sink fails
+     */
+    public boolean tour(int row, int col, TourSink sink) throws IOException {
+        if (!tour(row, col))
+            return false;
+        sink.begin(rowSize, colSize, row, col);
+        for (int i = 1; i < tour.size(); i++) {
+            int from = tour.get(i - 1);
+            int to = tour.get(i);
+            sink.move(leaper.moveIndex(to / colSize - from / colSize,
+                    to % colSize - from % colSize));
+        }
+        sink.end();
+        return true;
+    }
+
+    /**
+     * Method to return all tours starting from the given cell, found lazily
+     * one at a time by a search that goes on from the last tour; call
+     * parallel() on it to search on several threads
+     * @param row the row of the starting cell
+     * @param col the column of the starting cell
+     * @return the tours, each as the cells in order, as row * colSize + col
+     * @throws IllegalArgumentException if the board has more than 64
+     *         cells, or the cell is not on it
+     */
+    public Stream<int[]> tours(int row, int col)
+            throws IllegalArgumentException {
+        return StreamSupport.stream(new TourSpliterator(bitBoard(), row,
+                col), false);
+    }
+
+    /**
+     * Method to return an iterator over all tours starting from the given
+     * cell, found lazily one at a time
+     * @param row the row of the starting cell
+     * @param col the column of the starting cell
+     * @return the iterator of the tours, each as the cells in order
+     * @throws IllegalArgumentException if the board has more than 64
+     *         cells, or the cell is not on it
+     */
+    public Iterator<int[]> tourIterator(int row, int col)
+            throws IllegalArgumentException {
+        return Spliterators.iterator(new TourSpliterator(bitBoard(), row,
+                col));
+    }
+
+    /**
+     * Method to set whether to look up and keep the tours in TourCache,
+     * which serves a start symmetric to one solved before at once
+     * @param useCache whether to use the cache
+     */
+    public void setUseCache(boolean useCache) {
+        this.useCache = useCache;
+    }
+
+    /**
+     * Method to set the precomputed table to answer from, for the boards
+     * it covers
+     * @param table the table, or null to always search
+     */
+    public void setTable(TourTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Method to keep a path found as the tour
+     * @param path the path as cell indices
+     */
+    protected void commit(int[] path) {
+        tour = IntDeque.wrap(path);
+    }
+
+    /**
+     * Method to find a reason why there is no tour from a cell; the knight
+     * on a whole board changes its color every move, so on a board of odd
+     * number of cells the tour starts on the color of the corners, which
+     * is all it is checked for, as the graph of a huge board would cost
+     * more than its tour; any other layout asks its graph for the colors,
+     * the dead cells, the cells that can only end the tour and the pieces
+     * @param start the starting cell, not blocked
+     * @return the reason, or null if there may be a tour
+     */
+    protected SearchStats.Prune infeasibility(int start) {
+        if (leaper.isKnight() && blocked == null)
+            return numCell % 2 == 1 && (start / colSize + start % colSize)
+                    % 2 == 1 ? SearchStats.Prune.PARITY : null;
+        return graph().infeasibility(start);
+    }
+
+    /**
+     * Method to find a full path from the starting cell, which is the one
+     * overridden by other algorithms
+     * @param path the array to store the path, with the starting cell 
+     *        placed at its index 0
+     * @return whether a full path is found
+     */
+    protected boolean findPath(int[] path) {
+        Path file = checkpointFile;
+        if (file == null || !leaper.isKnight() || blocked != null)
+            return extend(path, 1, null);
+
+        // go on from the checkpoint of the same search, if any
+        SearchCheckpoint from = null;
+        try {
+            from = SearchCheckpoint.load(file);
+        } catch (IOException ex) {
+            System.err.println("Cannot resume the search: " + ex.getMessage());
+        }
+        if (from != null && !from.isOf(rowSize, colSize, path[0]))
+            from = null;
+        if (from != null)
+            report(from.nodes, from.depth + 1);
+
+        nextCheckpoint = System.nanoTime() + checkpointNanos;
+        checkpointThread = Thread.currentThread();
+        boolean found;
+        try {
+            found = extend(path, 1, from);
+        } finally {
+            checkpointThread = null;
+        }
+
+        // the search is over unless stopped, so is its checkpoint
+        if (found || !shouldStop()) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ex) {
+                System.err.println("Cannot delete " + file + ": " + ex);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Method to extend a path into a full tour by backtracking, on a 
+     * BitBoard when the board has at most 64 cells
+     * @param path the path, with its first len cells placed
+     * @param len the length of the given path, at least 1
+     * @return whether a full tour is found, in which case it is in path
+     */
+    protected boolean extend(int[] path, int len) {
+        return extend(path, len, null);
+    }
+
+    /**
+     * Method to extend a path into a full tour by backtracking, or to go
+     * on with a search from a checkpoint
+     * @param path the path, with its first len cells placed
+     * @param len the length of the given path, at least 1
+     * @param from the checkpoint to go on from, or null
+     * @return whether a full tour is found, in which case it is in path
+     */
+    private boolean extend(int[] path, int len, SearchCheckpoint from) {
+        if (numCell <= BitBoard.MAX_CELLS) {
+            BitSearch bs = bitSearches.computeIfAbsent(
+                    Thread.currentThread(),
+                    t -> new BitSearch(BitBoard.of(graph()), this));
+            return bs.search(path, len, from);
+        }
+        boolean[] visited = new boolean[numCell];
+        for (int i = 0; i < len; i++)
+            visited[path[i]] = true;
+        if (from != null)
+            return search(path, visited, from);
+        return search(path, len, visited);
+    }
+
+    /**
+     * Method to save the frontier of the exhaustive search of this object
+     * to a file every so often, and to go on from the file when searching
+     * again from the same cell, e.g. after a restart; the file is deleted
+     * once the search is over, and kept if it is cancelled, after saving
+     * where it stopped; only the search of KnightTour itself on the
+     * searching thread is saved, not the subtrees of ParallelKnightTour,
+     * and only for the knight on a board with no cell blocked
+     * @param file the checkpoint file, or null to save none
+     * @param intervalMillis the time between two saves
+     */
+    public void setCheckpoint(Path file, long intervalMillis) {
+        checkpointNanos = intervalMillis * 1_000_000L;
+        checkpointFile = file;
+    }
+
+    /**
+     * Method to check whether the search calling it should save its
+     * frontier now, which is checked along with the cancel flag
+     * @param stopping whether the search is about to stop
+     * @return whether to call checkpoint()
+     */
+    boolean isCheckpointDue(boolean stopping) {
+        return checkpointThread == Thread.currentThread()
+                && (stopping || System.nanoTime() - nextCheckpoint >= 0);
+    }
+
+    /**
+     * Method to save the frontier of the search, after its progress has
+     * been reported
+     * @param path the path, of which the cells up to d are kept
+     * @param floor the depth the search never backtracks from
+     * @param d the current depth
+     * @param untried the masks of the moves not tried yet from each depth
+     *        from floor to d
+     */
+    void checkpoint(int[] path, int floor, int d, byte[] untried) {
+        Path file = checkpointFile;
+        if (file == null)
+            return;
+        try {
+            new SearchCheckpoint(rowSize, colSize, path, floor, d, untried,
+                    getNodeCount()).save(file);
+        } catch (IOException ex) {
+            System.err.println("Cannot save the search: " + ex.getMessage());
+        }
+        nextCheckpoint = System.nanoTime() + checkpointNanos;
+    }
+
+    /**
+     * Method to return the tour found by the last call of tour()
+     * @return the tour, from its first cell to its last one, as cell
+     *         indices, i.e., row * colSize + col
+     */
+    public IntDeque getTour() {
+        return tour;
+    }
+
+    /**
+     * Method to return the number of cells of the board
+     * @return the number of cells
+     * @throws IllegalArgumentException if the board has more cells than
+     *         an array holds
+     */
+    public int getNumCell() throws IllegalArgumentException {
+        checkSize();
+        return numCell;
+    }
+
+    /**
+     * Method to check that the tour of the board fits an array
+     * @throws IllegalArgumentException if the board has more cells than
+     *         an array holds
+     */
+    protected void checkSize() throws IllegalArgumentException {
+        if (numCell < 0)
+            throw new IllegalArgumentException("board of " + rowSize + "x"
+                    + colSize + " has more cells than an array holds; "
+                    + "stream its tour to a TourSink");
+    }
+
+    /**
+     * Method to return the piece touring the board
+     * @return the leaper
+     */
+    public Leaper getLeaper() {
+        return leaper;
+    }
+
+    /**
+     * Method to return the cells blocked
+     * @return a copy of the cells blocked, empty if none
+     */
+    public BitSet getBlocked() {
+        return blocked == null ? new BitSet() : (BitSet) blocked.clone();
+    }
+
+    /**
+     * Method to return the graph of the moves on the board, building it
+     * or taking the shared one the first time
+     * @return the graph
+     */
+    protected MoveGraph graph() {
+        MoveGraph g = graph;
+        if (g == null)
+            graph = g = MoveGraph.of(rowSize, colSize, leaper, blocked);
+        return g;
+    }
+
+    /**
+     * Method to return the bit masks of the moves on a board of at most 64
+     * cells
+     * @return the bitboard
+     * @throws IllegalArgumentException if the board has more cells
+     */
+    BitBoard bitBoard() throws IllegalArgumentException {
+        if (numCell > BitBoard.MAX_CELLS)
+            throw new IllegalArgumentException(rowSize + "x" + colSize);
+        return BitBoard.of(graph());
+    }
+
+    /**
+     * Method to stop an ongoing search, safe to call from any thread;
+     * the search then returns false shortly
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Method to check whether this search has been cancelled, either by
+     * cancel() or by interrupting the searching thread
+     * @return whether cancelled
+     */
+    public boolean isCancelled() {
+        if (Thread.currentThread().isInterrupted())
+            cancelled = true;
+        return cancelled;
+    }
+
+    /**
+     * Method to return the number of nodes explored so far
+     * @return the number of nodes
+     */
+    public synchronized long getNodeCount() {
+        return stats.nodes;
+    }
+
+    /**
+     * Method to return the counters of the current or the last search
+     * @return a copy of the counters
+     */
+    public synchronized SearchStats getStats() {
+        return stats.copy();
+    }
+
+    /**
+     * Method to return the depth of the current path of the search
+     * @return the current depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Method to check whether the last search gave up within its budget
+     * without deciding whether there is a tour
+     * @return whether it gave up
+     */
+    public boolean hasGivenUp() {
+        return gaveUp;
+    }
+
+    /**
+     * Method to record that the current search gives up within its budget
+     */
+    protected void giveUp() {
+        gaveUp = true;
+    }
+
+    /**
+     * Method to check whether the search should stop now, which is when
+     * it has been cancelled by default
+     * @return whether to stop
+     */
+    protected boolean shouldStop() {
+        return isCancelled();
+    }
+
+    /**
+     * Method to report the progress of the search, which may be called by
+     * several searching threads
+     * @param nodes the number of nodes explored since the last report
+     * @param d the depth of the current path
+     */
+    protected void report(long nodes, int d) {
+        synchronized (this) {
+            stats.nodes += nodes;
+            stats.maxDepth = Math.max(stats.maxDepth, d);
+            depth = d;
+        }
+        notifyListener();
+    }
+
+    /**
+     * Method to report the progress of the search with all its counters,
+     * which may be called by several searching threads
+     * @param delta the counters since the last report of this thread,
+     *        which are set to zero
+     * @param d the depth of the current path
+     */
+    protected void report(SearchStats delta, int d) {
+        synchronized (this) {
+            stats.add(delta);
+            depth = d;
+        }
+        delta.clear();
+        notifyListener();
+    }
+
+    /**
+     * Method to tell the listener, if any, the progress
+     */
+    private void notifyListener() {
+        SearchListener l = listener;
+        if (l != null)
+            l.onProgress(this, getStats());
+    }
+
+    /**
+     * Method to extend a path into a full tour by backtracking; the cells
+     * already in the path are never backtracked
+     * @param path the path, with its first len cells placed
+     * @param len the length of the given path, at least 1
+     * @param visited the cells visited by the given path
+     * @return whether a full tour is found, in which case it is in path
+     */
+    protected boolean search(int[] path, int len, boolean[] visited) {
+        int[][] cand = new int[numCell][8];
+        int[] candCount = new int[numCell];
+        int[] candIdx = new int[numCell];
+        candCount[len - 1] = expand(path[len - 1], visited, cand[len - 1]);
+        return search(path, len - 1, len - 1, visited, cand, candCount,
+                candIdx);
+    }
+
+    /**
+     * Method to go on with the search from a checkpoint, trying the moves
+     * not tried yet at each depth in the order they would have been tried
+     * @param path the array to store the path
+     * @param visited the cells visited by the path up to the floor of the
+     *        checkpoint
+     * @param from the checkpoint
+     * @return whether a full tour is found, in which case it is in path
+     */
+    private boolean search(int[] path, boolean[] visited,
+            SearchCheckpoint from) {
+        int[][] cand = new int[numCell][8];
+        int[] candCount = new int[numCell];
+        int[] candIdx = new int[numCell];
+        System.arraycopy(from.path, 0, path, 0, from.depth + 1);
+        for (int k = 0; k <= from.depth; k++)
+            visited[path[k]] = true;
+
+        // the candidates at each depth, as ordered with the cells visited
+        // then, without the ones tried already
+        boolean[] before = new boolean[numCell];
+        for (int k = 0; k <= from.depth; k++) {
+            before[path[k]] = true;
+            if (k < from.floor)
+                continue;
+            int mask = from.untried[k - from.floor];
+            int n = expand(path[k], before, cand[k]);
+            for (int i = 0; i < n; i++)
+                if (SearchCheckpoint.hasMove(mask, path[k], cand[k][i],
+                        colSize))
+                    cand[k][candCount[k]++] = cand[k][i];
+        }
+        return search(path, from.floor, from.depth, visited, cand, candCount,
+                candIdx);
+    }
+
+    /**
+     * Method to backtrack from the given state of the search
+     * @param path the path, with its cells up to d placed
+     * @param floor the depth never backtracked from
+     * @param d the current depth
+     * @param visited the cells visited by the path
+     * @param cand the candidates of the next move at each depth
+     * @param candCount the number of candidates at each depth
+     * @param candIdx the candidate to try next at each depth
+     * @return whether a full tour is found, in which case it is in path
+     */
+    private boolean search(int[] path, int floor, int d, boolean[] visited,
+            int[][] cand, int[] candCount, int[] candIdx) {
+        SearchStats counts = new SearchStats(numCell);
+        int[] ends = endCells(path, floor, d);
+        while (d < numFree - 1) {
+
+            // check whether we should stop, and report the progress
+            if ((++counts.nodes & (CHECK_INTERVAL - 1)) == 0) {
+                report(counts, d + 1);
+                boolean stop = shouldStop();
+                if (isCheckpointDue(stop))
+                    checkpoint(path, floor, d, untried(path, floor, d, cand,
+                            candCount, candIdx));
+                if (stop)
+                    return false;
+            }
+
+            if (candIdx[d] < candCount[d]) {
+
+                // step into the next candidate
+                int next = cand[d][candIdx[d]++];
+                visited[next] = true;
+                path[++d] = next;
+                if (d + 1 > counts.maxDepth)
+                    counts.maxDepth = d + 1;
+                SearchStats.Prune doom = doom(path, d, visited, ends);
+                if (doom != null) {
+                    counts.prune(doom, d + 1);
+                    visited[next] = false;
+                    d--;
+                    continue;
+                }
+                candCount[d] = expand(next, visited, cand[d]);
+                candIdx[d] = 0;
+            } else {
+
+                // no more candidates, backtrack
+                counts.backtrack(d + 1);
+                if (d == floor) {
+                    report(counts, d + 1);
+                    return false;
+                }
+                visited[path[d]] = false;
+                d--;
+            }
+        }
+        report(counts, numFree);
+        return true;
+    }
+
+    /**
+     * Method to find the cell that can only be the last one of the tour at
+     * each depth of a path, for the array search to go on from
+     * @param path the path, with its cells up to d placed
+     * @param floor the depth never backtracked from
+     * @param d the current depth
+     * @return the cell at each depth from floor to d, or -1 if none
+     */
+    private int[] endCells(int[] path, int floor, int d) {
+        int[] ends = new int[numCell];
+        boolean[] seen = new boolean[numCell];
+        for (int k = 0; k <= floor; k++)
+            seen[path[k]] = true;
+        ends[floor] = endCell(path[floor], seen);
+        for (int k = floor + 1; k <= d; k++) {
+            seen[path[k]] = true;
+            if (doom(path, k, seen, ends) != null)
+                ends[k] = endCell(path[k], seen);
+        }
+        return ends;
+    }
+
+    /**
+     * Method to find a free cell that can only be the last one of the
+     * tour, by checking all of them
+     * @param cell the current cell
+     * @param visited the cells visited, including the current one
+     * @return one such cell, or -1 if there is none
+     */
+    private int endCell(int cell, boolean[] visited) {
+        MoveGraph g = graph();
+        for (int u = 0; u < numCell; u++) {
+            if (visited[u] || g.isBlocked(u))
+                continue;
+            int deg = 0;
+            for (int e = g.first[u], end = g.first[u + 1]; e < end; e++)
+                if (!visited[g.next[e]] || g.next[e] == cell)
+                    deg++;
+            if (deg <= 1)
+                return u;
+        }
+        return -1;
+    }
+
+    /**
+     * Method to check whether the path of the array search, just extended
+     * to depth d, can no longer become a tour, as BitSearch.doom() does
+     * but for the pieces of the free cells; also keeps ends[d] for the
+     * next check
+     * @param path the path
+     * @param d the depth of the path
+     * @param visited the cells visited, including the last one
+     * @param ends the cell that can only be the last one of the tour, or
+     *        -1, at each depth up to d - 1
+     * @return why the path is doomed, or null if it is not
+     */
+    private SearchStats.Prune doom(int[] path, int d, boolean[] visited,
+            int[] ends) {
+        if (d >= numFree - 1)
+            return null;
+
+        // only the neighbors of the cell left lose a way in, so only they
+        // can become a cell with no way in, or a cell to end at
+        MoveGraph g = graph();
+        int next = path[d];
+        int prev = path[d-1];
+        int kept = ends[d-1] >= 0 && !visited[ends[d-1]] ? ends[d-1] : -1;
+        int end = -1;
+        for (int e = g.first[prev], last = g.first[prev + 1]; e < last;
+                e++) {
+            int cell = g.next[e];
+            if (cell == kept)
+                kept = -1;
+            if (visited[cell])
+                continue;
+            int deg = 0;
+            for (int f = g.first[cell], to = g.first[cell + 1]; f < to; f++)
+                if (!visited[g.next[f]] || g.next[f] == next)
+                    deg++;
+            if (deg == 0)
+                return SearchStats.Prune.DEAD_CELL;
+            if (deg == 1) {
+                if (end >= 0)
+                    return SearchStats.Prune.TWO_ENDS;
+                end = cell;
+            }
+        }
+        if (kept >= 0) {
+            if (end >= 0)
+                return SearchStats.Prune.TWO_ENDS;
+            end = kept;
+        }
+        ends[d] = end;
+        return null;
+    }
+
+    /**
+     * Method to return the moves not tried yet at each depth of the array
+     * search, for a checkpoint
+     * @param path the path
+     * @param floor the depth never backtracked from
+     * @param d the current depth
+     * @param cand the candidates of the next move at each depth
+     * @param candCount the number of candidates at each depth
+     * @param candIdx the candidate to try next at each depth
+     * @return the masks of the moves from each depth from floor to d
+     */
+    private byte[] untried(int[] path, int floor, int d, int[][] cand,
+            int[] candCount, int[] candIdx) {
+        byte[] untried = new byte[d - floor + 1];
+        for (int k = floor; k <= d; k++)
+            for (int i = candIdx[k]; i < candCount[k]; i++)
+                untried[k - floor] |= (byte) SearchCheckpoint.moveBit(
+                        path[k], cand[k][i], colSize);
+        return untried;
+    }
+
+    /**
+     * Method to collect the unvisited neighbors of a cell, in the order of
+     * their onward degree
+     * @param cell the cell
+     * @param visited the cells visited
+     * @param cand the array to store the neighbors
+     * @return the number of neighbors
+     */
+    protected int expand(int cell, boolean[] visited, int[] cand) {
+        MoveGraph g = graph();
+        int[] degree = new int[8];
+        int count = 0;
+        for (int e = g.first[cell], end = g.first[cell + 1]; e < end; e++) {
+            int next = g.next[e];
+            if (visited[next])
+                continue;
+
+            // insertion by its onward degree
+            int deg = onwardDegree(g, next, visited);
+            int i = count++;
+            while (i > 0 && degree[i-1] > deg) {
+                cand[i] = cand[i-1];
+                degree[i] = degree[i-1];
+                i--;
+            }
+            cand[i] = next;
+            degree[i] = deg;
+        }
+        return count;
+    }
+
+    /**
+     * Method to count the unvisited neighbors of a cell
+     * @param g the graph of the moves
+     * @param cell the cell
+     * @param visited the cells visited
+     * @return the number of unvisited neighbors
+     */
+    private static int onwardDegree(MoveGraph g, int cell,
+            boolean[] visited) {
+        int deg = 0;
+        for (int e = g.first[cell], end = g.first[cell + 1]; e < end; e++)
+            if (!visited[g.next[e]])
+                deg++;
+        return deg;
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * File: Leaper.java
+ * Description: a piece jumping a fixed distance, such as the knight
+ * @author Zhiwei Jia
+ */
+
+/**
+ * Class Name: Leaper
+ * Description: the (a, b)-leaper, which jumps a rows and b columns or b
+ *              rows and a columns in any direction, the knight being the
+ *              (2, 1)-leaper; its moves are numbered in the order of
+ *              KnightTour.ROW_MOVES and COL_MOVES, so the knight's are the
+ *              same, and a move of any leaper fits into 3 bits; when a is
+ *              b or one of them is 0, some of the 8 are the same move, and
+ *              only the first of them is used
+ */
+public final class Leaper {
+
+    public static final Leaper KNIGHT = new Leaper(2, 1);
+    public static final Leaper CAMEL = new Leaper(3, 1);
+    public static final Leaper ZEBRA = new Leaper(3, 2);
+    public static final Leaper GIRAFFE = new Leaper(4, 1);
+
+    // the longer and the shorter jump
+    private final int a;
+    private final int b;
+
+    // the moves as row and column offsets
+    private final int[] rowMoves;
+    private final int[] colMoves;
+
+    /**
+     * Method to return the (a, b)-leaper
+     * @param a one jump
+     * @param b the other jump
+     * @return the leaper, the same as (b, a)
+     * @throws IllegalArgumentException if a jump is negative, or both are 0
+     */
+    public static Leaper of(int a, int b) throws IllegalArgumentException {
+        if (a < 0 || b < 0 || a == 0 && b == 0)
+            throw new IllegalArgumentException("(" + a + ", " + b + ")");
+        Leaper l = new Leaper(Math.max(a, b), Math.min(a, b));
+        for (Leaper known : new Leaper[] {KNIGHT, CAMEL, ZEBRA, GIRAFFE})
+            if (known.equals(l))
+                return known;
+        return l;
+    }
+
+    /**
+     * Constructor with the jumps, the longer first
+     * @param a the longer jump
+     * @param b the shorter jump
+     */
+    private Leaper(int a, int b) {
+        this.a = a;
+        this.b = b;
+        rowMoves = new int[] {-a, -b, b, a, a, b, -b, -a};
+        colMoves = new int[] {b, a, a, b, -b, -a, -a, -b};
+    }
+
+    /**
+     * Method to return the longer jump
+     * @return a
+     */
+    public int getA() {
+        return a;
+    }
+
+    /**
+     * Method to return the shorter jump
+     * @return b
+     */
+    public int getB() {
+        return b;
+    }
+
+    /**
+     * Method to return the change of row of a move
+     * @param move the index of the move, from 0 to 7
+     * @return the change of row
+     */
+    public int rowMove(int move) {
+        return rowMoves[move];
+    }
+
+    /**
+     * Method to return the change of column of a move
+     * @param move the index of the move, from 0 to 7
+     * @return the change of column
+     */
+    public int colMove(int move) {
+        return colMoves[move];
+    }
+
+    /**
+     * Method to find the index of a move
+     * @param dr the change of row
+     * @param dc the change of column
+     * @return the first index of the move, or -1 if it is not a move of
+     *         this leaper
+     */
+    public int moveIndex(int dr, int dc) {
+        for (int m = 0; m < 8; m++)
+            if (rowMoves[m] == dr && colMoves[m] == dc)
+                return m;
+        return -1;
+    }
+
+    /**
+     * Method to check whether a move is the first of the same ones
+     * @param move the index of the move
+     * @return whether it is
+     */
+    boolean isFirst(int move) {
+        return moveIndex(rowMoves[move], colMoves[move]) == move;
+    }
+
+    /**
+     * Method to check whether every move changes the color of the cell,
+     * which is when a + b is odd; otherwise the leaper never does
+     * @return whether it does
+     */
+    public boolean changesColor() {
+        return (a + b) % 2 == 1;
+    }
+
+    /**
+     * Method to check whether this is the knight
+     * @return whether it is
+     */
+    public boolean isKnight() {
+        return a == 2 && b == 1;
+    }
+
+    @Override
+    /**
+     * Method to check whether another object is the same leaper
+     * @param o the other object
+     * @return whether it is
+     */
+    public boolean equals(Object o) {
+        return o instanceof Leaper && ((Leaper) o).a == a
+                && ((Leaper) o).b == b;
+    }
+
+    @Override
+    /**
+     * Method to return the hash code
+     * @return the hash code
+     */
+    public int hashCode() {
+        return a * 31 + b;
+    }
+
+    @Override
+    /**
+     * Method to return the name, as "(a,b)"
+     * @return the name
+     */
+    public String toString() {
+        return "(" + a + "," + b + ")";
+    }
+}
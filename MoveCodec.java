@@ -0,0 +1,122 @@
+/**
+ * File: MoveCodec.java
+ * Description: packing a tour as 3-bit move indices
+ * @author Zhiwei Jia
+ */
+
+import java.nio.ByteBuffer;
+
+/**
+ * Class Name: MoveCodec
+ * Description: a tour is its starting cell plus one of the eight moves of
+ *              KnightTour for each step, so each step takes 3 bits; step i
+ *              is stored at bits 3i to 3i+2, counted from the lowest bit of
+ *              the first byte
+ */
+public final class MoveCodec {
+
+    /**
+     * Constructor, not to be used
+     */
+    private MoveCodec() {
+    }
+
+    /**
+     * Method to find the index of a move
+     * @param dr the change of row
+     * @param dc the change of column
+     * @return the index into KnightTour.ROW_MOVES and COL_MOVES, or -1 if
+     *         it is not a move of a knight
+     */
+    public static int moveIndex(int dr, int dc) {
+        for (int m = 0; m < 8; m++)
+            if (KnightTour.ROW_MOVES[m] == dr && KnightTour.COL_MOVES[m] == dc)
+                return m;
+        return -1;
+    }
+
+    /**
+     * Method to return the number of bytes of the given number of moves
+     * @param moves the number of moves
+     * @return the number of bytes
+     */
+    public static int packedBytes(int moves) {
+        return (int) ((3L * moves + 7) / 8);
+    }
+
+    /**
+     * Method to pack the moves of a path
+     * @param path the path as cell indices
+     * @param colSize the number of columns of the board
+     * @param out the array to store the moves, which must be zeros
+     * @param off the index of out to start at
+     * @throws IllegalArgumentException if two cells of the path are not a
+     *         move apart
+     */
+    public static void pack(int[] path, int colSize, byte[] out, int off)
+            throws IllegalArgumentException {
+        for (int i = 1; i < path.length; i++) {
+            int m = moveIndex(path[i] / colSize - path[i-1] / colSize,
+                    path[i] % colSize - path[i-1] % colSize);
+            if (m < 0)
+                throw new IllegalArgumentException("not a move at step " + i);
+            put(out, off, i - 1, m);
+        }
+    }
+
+    /**
+     * Method to store one move
+     * @param out the array to store the moves, which must be zeros where
+     *        the move goes
+     * @param off the index of out where the moves start
+     * @param i the number of the move, starting from 0
+     * @param m the index of the move
+     */
+    public static void put(byte[] out, int off, int i, int m) {
+        long bit = 3L * i;
+        int b = off + (int) (bit >>> 3);
+        int value = m << (int) (bit & 7);
+        out[b] |= (byte) value;
+        if (value > 0xFF)
+            out[b+1] |= (byte) (value >>> 8);
+    }
+
+    /**
+     * Method to read one move
+     * @param in the buffer holding the moves
+     * @param base the index of the first byte of the moves
+     * @param i the number of the move, starting from 0
+     * @return the index of the move
+     */
+    public static int get(ByteBuffer in, int base, long i) {
+        long bit = 3 * i;
+        int b = base + (int) (bit >>> 3);
+        int shift = (int) (bit & 7);
+        int value = in.get(b) & 0xFF;
+        if (shift > 5)
+            value |= (in.get(b + 1) & 0xFF) << 8;
+        return (value >>> shift) & 7;
+    }
+
+    /**
+     * Method to unpack the moves into a path
+     * @param in the buffer holding the moves
+     * @param base the index of the first byte of the moves
+     * @param start the starting cell
+     * @param colSize the number of columns of the board
+     * @param path the array to store the path, whose length tells the
+     *        number of cells
+     */
+    public static void unpack(ByteBuffer in, int base, int start, int colSize,
+            int[] path) {
+        int row = start / colSize;
+        int col = start % colSize;
+        path[0] = start;
+        for (int i = 1; i < path.length; i++) {
+            int m = get(in, base, i - 1);
+            row += KnightTour.ROW_MOVES[m];
+            col += KnightTour.COL_MOVES[m];
+            path[i] = row * colSize + col;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/**
+ * File: MoveGraph.java
+ * Description: the moves of a leaper on a board, in compressed rows
+ * @author Zhiwei Jia
+ */
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class Name: MoveGraph
+ * Description: the cells a leaper reaches from each cell of a board, in
+ *              compressed sparse rows: the neighbors of cell are
+ *              next[first[cell]] to next[first[cell + 1] - 1], in the
+ *              order of the moves, and move[] holds the index of the move
+ *              of each; a search walks them with no bounds check and no
+ *              branch on the piece or the shape of the board, from two
+ *              arrays read in order; the graphs are built once for each
+ *              board and leaper and shared by all searches, up to
+ *              MAX_SHARED cells, while larger ones are built for each
+ *              object using them
+ *
+ *              Some cells of the board may be blocked, as a BitSet of
+ *              their indices; a blocked cell keeps its index but has no
+ *              move to or from it, and the tour visits the other cells
+ *              only; such a graph is built for each object, as a layout is
+ *              seldom searched twice; before searching it, infeasibility()
+ *              rejects most layouts with no tour in constant time, from
+ *              the colors, the pieces and the cells of one move of the
+ *              free cells, which are found once for the graph
+ */
+public final class MoveGraph {
+
+    // the largest board whose graph is kept for all searches
+    static final int MAX_SHARED = 1 << 20;
+
+    // the graphs kept, by the board and the leaper
+    private static final ConcurrentHashMap<Key, MoveGraph> GRAPHS =
+            new ConcurrentHashMap<>();
+
+    // some value relevant to the board
+    public final int rowSize;
+    public final int colSize;
+    public final int numCell;
+    public final Leaper leaper;
+
+    // the cells blocked, and the number of the others
+    private final BitSet blocked;
+    public final int numFree;
+
+    // the start of the neighbors of each cell, and one more at the end,
+    // the neighbors and the moves to them
+    final int[] first;
+    final int[] next;
+    final byte[] move;
+
+    // the piece of free cells each cell is in, or -1 if blocked, the size
+    // of each piece, the free cells of each color, and the free cells with
+    // no move and with one move, found when first needed
+    private int[] piece;
+    private int[] pieceSize;
+    private int[] colorCount;
+    private int dead;
+    private int leaves;
+
+    /**
+     * Method to return the graph of a leaper on a board
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param leaper the leaper
+     * @return the graph
+     * @throws IllegalArgumentException if the board is empty or too large
+     *         for an array
+     */
+    public static MoveGraph of(int rowSize, int colSize, Leaper leaper)
+            throws IllegalArgumentException {
+        long cells = (long) rowSize * colSize;
+        if (rowSize < 1 || colSize < 1 || 8 * cells > Integer.MAX_VALUE)
+            throw new IllegalArgumentException(rowSize + "x" + colSize);
+        if (cells > MAX_SHARED)
+            return new MoveGraph(rowSize, colSize, leaper, new BitSet());
+        return GRAPHS.computeIfAbsent(new Key(rowSize, colSize, leaper),
+                k -> new MoveGraph(rowSize, colSize, leaper, new BitSet()));
+    }
+
+    /**
+     * Method to return the graph of a leaper on a board with some cells
+     * blocked, which is not shared unless no cell is blocked
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param leaper the leaper
+     * @param blocked the cells blocked, as row * colSize + col
+     * @return the graph
+     * @throws IllegalArgumentException if the board is empty or too large
+     *         for an array, or a cell blocked is not on it
+     */
+    public static MoveGraph of(int rowSize, int colSize, Leaper leaper,
+            BitSet blocked) throws IllegalArgumentException {
+        if (blocked == null || blocked.isEmpty())
+            return of(rowSize, colSize, leaper);
+        if (rowSize < 1 || colSize < 1
+                || 8L * rowSize * colSize > Integer.MAX_VALUE)
+            throw new IllegalArgumentException(rowSize + "x" + colSize);
+        if (blocked.length() > rowSize * colSize)
+            throw new IllegalArgumentException("cell " + (blocked.length() - 1)
+                    + " is not on the board of " + rowSize + "x" + colSize);
+        return new MoveGraph(rowSize, colSize, leaper,
+                (BitSet) blocked.clone());
+    }
+
+    /**
+     * Constructor with the board and the leaper, which builds the graph
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param leaper the leaper
+     * @param blocked the cells blocked, kept by the graph
+     */
+    private MoveGraph(int rowSize, int colSize, Leaper leaper,
+            BitSet blocked) {
+        this.rowSize = rowSize;
+        this.colSize = colSize;
+        this.numCell = rowSize * colSize;
+        this.leaper = leaper;
+        this.blocked = blocked;
+        this.numFree = numCell - blocked.cardinality();
+        first = new int[numCell + 1];
+        int[] to = new int[8 * numCell];
+        byte[] by = new byte[8 * numCell];
+        int n = 0;
+        for (int cell = 0; cell < numCell; cell++) {
+            first[cell] = n;
+            if (blocked.get(cell))
+                continue;
+            int row = cell / colSize;
+            int col = cell % colSize;
+            for (int m = 0; m < 8; m++) {
+                int r = row + leaper.rowMove(m);
+                int c = col + leaper.colMove(m);
+                if (r >= 0 && r < rowSize && c >= 0 && c < colSize
+                        && leaper.isFirst(m) 
+                        && !blocked.get(r * colSize + c)) {
+                    to[n] = r * colSize + c;
+                    by[n++] = (byte) m;
+                }
+            }
+        }
+        first[numCell] = n;
+        next = Arrays.copyOf(to, n);
+        move = Arrays.copyOf(by, n);
+    }
+
+    /**
+     * Method to return the number of cells reachable from a cell
+     * @param cell the cell
+     * @return the degree
+     */
+    public int degree(int cell) {
+        return first[cell + 1] - first[cell];
+    }
+
+    /**
+     * Method to check whether a cell is blocked
+     * @param cell the cell
+     * @return whether it is
+     */
+    public boolean isBlocked(int cell) {
+        return blocked.get(cell);
+    }
+
+    /**
+     * Method to return the cells blocked
+     * @return a copy of the cells blocked
+     */
+    public BitSet getBlocked() {
+        return (BitSet) blocked.clone();
+    }
+
+    /**
+     * Method to find a reason why there is no tour from a cell, checking
+     * what every tour needs: a leaper changing color every move visits as
+     * many cells of each color, or one more of the color it starts on; all
+     * free cells are in the piece of the starting cell; no free cell has
+     * no move, and at most one besides the starting cell has one move, as
+     * such a cell can only end the tour
+     * @param start the starting cell, not blocked
+     * @return the reason, or null if the layout may have a tour
+     */
+    public SearchStats.Prune infeasibility(int start) {
+        analyze();
+        if (leaper.changesColor()) {
+            int c = (start / colSize + start % colSize) % 2;
+            int diff = colorCount[c] - colorCount[1 - c];
+            if (diff != 0 && diff != 1)
+                return SearchStats.Prune.PARITY;
+        }
+        if (numFree == 1)
+            return null;
+        if (dead > 0)
+            return SearchStats.Prune.DEAD_CELL;
+        if (leaves - (degree(start) == 1 ? 1 : 0) > 1)
+            return SearchStats.Prune.TWO_ENDS;
+        if (pieceSize[piece[start]] != numFree)
+            return SearchStats.Prune.DISCONNECTED;
+        return null;
+    }
+
+    /**
+     * Method to find the pieces, the colors and the cells of at most one
+     * move of the free cells, once for the graph
+     */
+    private synchronized void analyze() {
+        if (piece != null)
+            return;
+        int[] p = new int[numCell];
+        Arrays.fill(p, -1);
+        int[] size = new int[numCell];
+        int[] color = new int[2];
+        int[] queue = new int[numCell];
+        int pieces = 0;
+        for (int cell = 0; cell < numCell; cell++) {
+            if (blocked.get(cell))
+                continue;
+            color[(cell / colSize + cell % colSize) % 2]++;
+            int deg = degree(cell);
+            if (deg == 0)
+                dead++;
+            else if (deg == 1)
+                leaves++;
+            if (p[cell] >= 0)
+                continue;
+
+            // a breadth-first search for the piece of the cell
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = cell;
+            p[cell] = pieces;
+            while (head < tail) {
+                int u = queue[head++];
+                for (int e = first[u]; e < first[u + 1]; e++) {
+                    if (p[next[e]] < 0) {
+                        p[next[e]] = pieces;
+                        queue[tail++] = next[e];
+                    }
+                }
+            }
+            size[pieces++] = tail;
+        }
+        pieceSize = Arrays.copyOf(size, pieces);
+        colorCount = color;
+        piece = p;
+    }
+
+    /**
+     * Method to check whether two cells are a move apart
+     * @param from one cell
+     * @param to the other cell
+     * @return whether they are
+     */
+    public boolean isMove(int from, int to) {
+        for (int e = first[from]; e < first[from + 1]; e++)
+            if (next[e] == to)
+                return true;
+        return false;
+    }
+
+    /**
+     * Class Name: Key
+     * Description: a board and a leaper, the key of a graph kept
+     */
+    private static final class Key {
+
+        private final int rowSize;
+        private final int colSize;
+        private final Leaper leaper;
+
+        /**
+         * Constructor with the board and the leaper
+         * @param rowSize the number of rows
+         * @param colSize the number of columns
+         * @param leaper the leaper
+         */
+        Key(int rowSize, int colSize, Leaper leaper) {
+            this.rowSize = rowSize;
+            this.colSize = colSize;
+            this.leaper = leaper;
+        }
+
+        @Override
+        /**
+         * Method to check whether another key is the same
+         * @param o the other key
+         * @return whether it is
+         */
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return k.rowSize == rowSize && k.colSize == colSize
+                    && k.leaper.equals(leaper);
+        }
+
+        @Override
+        /**
+         * Method to return the hash code
+         * @return the hash code
+         */
+        public int hashCode() {
+            return (rowSize * 31 + colSize) * 31 + leaper.hashCode();
+        }
+    }
+}
@@ -191,12 +191,12 @@ public class MyDeque<E> implements Cloneable {
 	copy.list = copy0;
 	
 	// build the String object to return
-	String result = "[";
+	StringBuilder result = new StringBuilder("[");
 	for (int i = 0; i < size()-1; i++) 
-	    result += copy.removeFront() + "; ";
+	    result.append(copy.removeFront()).append("; ");
 	
 	// return the String
-        return result += copy.removeFront() + "]";
+        return result.append(copy.removeFront()).append("]").toString();
     }
 
     /**
@@ -0,0 +1,169 @@
+/**
+ * File: ParallelKnightTour.java
+ * Description: finding a Knight's Tour with all cores of the machine
+ * @author Zhiwei Jia
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class Name: ParallelKnightTour
+ * Description: runs the backtracking search of KnightTour on a fork-join
+ *              pool; the search tree is split into the subtrees below all
+ *              paths of a few moves, idle workers steal the subtrees not
+ *              started yet, and all workers stop once one finds a tour
+ */
+public class ParallelKnightTour extends KnightTour {
+
+    // the default number of moves of the paths the tree is split at
+    static final int DEFAULT_SPLIT_DEPTH = 3;
+
+    private final int parallelism;
+    private final int splitDepth;
+
+    // the tour found by one of the workers, null before that
+    private volatile int[] solution;
+
+    /**
+     * Constructor with the size of the board, using all cores
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     */
+    public ParallelKnightTour(int rowSize, int colSize) {
+        this(rowSize, colSize, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor with the size of the board and the size of the pool
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param parallelism the number of worker threads
+     */
+    public ParallelKnightTour(int rowSize, int colSize, int parallelism) {
+        this(rowSize, colSize, parallelism, DEFAULT_SPLIT_DEPTH);
+    }
+
+    /**
+     * Constructor with the size of the board, the size of the pool and
+     * where to split the search tree
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param parallelism the number of worker threads
+     * @param splitDepth the number of moves of the paths the search tree is
+     *        split at, where a larger one gives more and smaller subtrees
+     * @throws IllegalArgumentException if parallelism is not positive
+     */
+    public ParallelKnightTour(int rowSize, int colSize, int parallelism,
+            int splitDepth) throws IllegalArgumentException {
+        super(rowSize, colSize);
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism " + parallelism);
+        this.parallelism = parallelism;
+        this.splitDepth = Math.max(0, splitDepth);
+    }
+
+    /**
+     * Method to return the number of worker threads
+     * @return the number of worker threads
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    @Override
+    /**
+     * Method to find a full path with a pool of workers
+     * @param path the array to store the path, with the starting cell
+     *        placed at its index 0
+     * @return whether a full path is found
+     */
+    protected boolean findPath(int[] path) {
+        solution = null;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new Subtree(new int[] {path[0]}));
+        } finally {
+            pool.shutdownNow();
+        }
+        int[] found = solution;
+        if (found == null)
+            return false;
+        System.arraycopy(found, 0, path, 0, numFree);
+        return true;
+    }
+
+    @Override
+    /**
+     * Method to check whether a worker should stop, which is also when
+     * another worker has found a tour
+     * @return whether to stop
+     */
+    protected boolean shouldStop() {
+        return solution != null || isCancelled();
+    }
+
+    /**
+     * Class Name: Subtree
+     * Description: the task of searching the subtree below a path, which
+     *              forks a task for each next move while the path is short
+     */
+    private class Subtree extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        // the path leading to this subtree
+        private final int[] prefix;
+
+        /**
+         * Constructor with the path leading to the subtree
+         * @param prefix the path
+         */
+        Subtree(int[] prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        /**
+         * Method to search the subtree
+         */
+        protected void compute() {
+            if (shouldStop())
+                return;
+
+            // deep enough, search it on this worker
+            int len = prefix.length;
+            if (len > splitDepth || len == numFree) {
+                int[] path = new int[numFree];
+                System.arraycopy(prefix, 0, path, 0, len);
+                if (len == numFree || extend(path, len))
+                    synchronized (ParallelKnightTour.this) {
+                        if (solution == null)
+                            solution = path;
+                    }
+                return;
+            }
+
+            // the cells visited by the path
+            boolean[] visited = new boolean[numCell];
+            for (int cell : prefix)
+                visited[cell] = true;
+
+            // otherwise a task for each next move, in the order of their
+            // onward degree, where the ones not started are stolen by
+            // idle workers
+            int[] cand = new int[8];
+            int count = expand(prefix[len-1], visited, cand);
+            List<Subtree> tasks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int[] next = new int[len + 1];
+                System.arraycopy(prefix, 0, next, 0, len);
+                next[len] = cand[i];
+                tasks.add(new Subtree(next));
+            }
+            invokeAll(tasks);
+        }
+    }
+}
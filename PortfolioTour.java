@@ -0,0 +1,301 @@
+/**
+ * File: PortfolioTour.java
+ * Description: finding a Knight's Tour by racing several algorithms
+ * @author Zhiwei Jia
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class Name: PortfolioTour
+ * Description: runs several strategies for the same start at once, each
+ *              on its own thread and with its own algorithm object, takes
+ *              the tour of the first one to find it and cancels the rest;
+ *              a start that is hard for one order of the moves is often
+ *              easy for another, so the race cuts the worst cases
+ *
+ *              The wins of every strategy are counted for each board size,
+ *              shared by all objects, and the strategies are started in
+ *              the order of their wins, so with fewer threads than
+ *              strategies the ones winning most run first, and the others
+ *              only once a thread is free
+ */
+public class PortfolioTour extends KnightTour {
+
+    // how often the race checks whether it is cancelled, in milliseconds
+    private static final int POLL_MILLIS = 20;
+
+    /**
+     * Enum Name: Strategy
+     * Description: the strategies raced, the exhaustive backtracking and
+     *              Warnsdorff's rule with different tie-breaks
+     */
+    public enum Strategy {
+
+        BACKTRACK(-1, 0),
+        WARNSDORFF(0, 0),
+        WARNSDORFF_ROTATED(4, 0),
+        RANDOM_1(0, 0x9E3779B97F4A7C15L),
+        RANDOM_2(2, 0xC2B2AE3D27D4EB4FL),
+        RANDOM_3(6, 0x165667B19E3779F9L);
+
+        // the first order of the moves of Warnsdorff's rule, or -1 for the
+        // backtracking, and the seed of its random tie-breaks
+        private final int rotation;
+        private final long seed;
+
+        /**
+         * Constructor with the tie-breaks
+         * @param rotation the first order of the moves, or -1
+         * @param seed the seed, or 0 for none
+         */
+        Strategy(int rotation, long seed) {
+            this.rotation = rotation;
+            this.seed = seed;
+        }
+
+        /**
+         * Method to create the algorithm object of this strategy
+         * @param rowSize the number of rows
+         * @param colSize the number of columns
+         * @return the algorithm object
+         */
+        KnightTour create(int rowSize, int colSize) {
+            if (rotation < 0)
+                return new KnightTour(rowSize, colSize);
+
+            // the backtracking is raced already, so the rule only gives up
+            WarnsdorffTour w = new WarnsdorffTour(rowSize, colSize, rotation,
+                    seed);
+            w.setExhaustive(false);
+            return w;
+        }
+    }
+
+    private static final Strategy[] STRATEGIES = Strategy.values();
+
+    // the wins of every strategy, for each board size
+    private static final ConcurrentHashMap<Long, long[]> WINS =
+            new ConcurrentHashMap<>();
+
+    private final int parallelism;
+
+    // the algorithm objects of the last race, for the progress, and the
+    // strategy that won it
+    private volatile KnightTour[] engines = new KnightTour[0];
+    private volatile Strategy winner;
+
+    /**
+     * Constructor with the size of the board, with a thread for every
+     * strategy, so all of them race even on fewer cores
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     */
+    public PortfolioTour(int rowSize, int colSize) {
+        this(rowSize, colSize, STRATEGIES.length);
+    }
+
+    /**
+     * Constructor with the size of the board and the number of threads
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param parallelism the number of strategies run at once
+     * @throws IllegalArgumentException if parallelism is not positive
+     */
+    public PortfolioTour(int rowSize, int colSize, int parallelism)
+            throws IllegalArgumentException {
+        super(rowSize, colSize);
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism " + parallelism);
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    /**
+     * Method to start counting a new search, forgetting the last race
+     */
+    protected void begin() {
+        engines = new KnightTour[0];
+        winner = null;
+        super.begin();
+    }
+
+    @Override
+    /**
+     * Method to find a full path by racing the strategies, in the order of
+     * their wins on this board size
+     * @param path the array to store the path, with the starting cell
+     *        placed at its index 0
+     * @return whether a full path is found
+     */
+    protected boolean findPath(int[] path) {
+        Strategy[] order = getOrder(rowSize, colSize);
+        KnightTour[] race = new KnightTour[order.length];
+        for (int i = 0; i < order.length; i++)
+            race[i] = order[i].create(rowSize, colSize);
+        engines = race;
+        int row = path[0] / colSize;
+        int col = path[0] % colSize;
+
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        ExecutorCompletionService<Integer> done =
+                new ExecutorCompletionService<>(pool);
+        try {
+            for (int i = 0; i < race.length; i++) {
+                int index = i;
+                done.submit(() -> race[index].tour(row, col) ? index : -1);
+            }
+
+            // the first strategy to find a tour wins
+            for (int left = race.length; left > 0; ) {
+                Future<Integer> f = done.poll(POLL_MILLIS,
+                        TimeUnit.MILLISECONDS);
+                if (f == null) {
+                    if (shouldStop())
+                        return false;
+                    continue;
+                }
+                left--;
+                int index = result(f);
+                if (index >= 0) {
+                    int[] tour = race[index].getTour().toArray();
+                    System.arraycopy(tour, 0, path, 0, numFree);
+                    winner = order[index];
+                    recordWin(rowSize, colSize, winner);
+                    return true;
+                }
+            }
+            return false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            for (KnightTour kt : race)
+                kt.cancel();
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Method to return the result of a strategy done
+     * @param f the task of the strategy
+     * @return the index of the strategy if it found a tour, or -1
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static int result(Future<Integer> f) throws InterruptedException {
+        try {
+            return f.get();
+        } catch (ExecutionException ex) {
+
+            // a failing strategy just loses the race
+            return -1;
+        }
+    }
+
+    @Override
+    /**
+     * Method to return the counters of the current or the last search,
+     * with the ones of all strategies raced
+     * @return a copy of the counters
+     */
+    public SearchStats getStats() {
+        SearchStats s = super.getStats();
+        for (KnightTour kt : engines)
+            s.add(kt.getStats());
+        return s;
+    }
+
+    @Override
+    /**
+     * Method to return the number of nodes explored so far by all
+     * strategies
+     * @return the number of nodes
+     */
+    public long getNodeCount() {
+        return getStats().getNodes();
+    }
+
+    @Override
+    /**
+     * Method to return the deepest current path of the strategies
+     * @return the current depth
+     */
+    public int getDepth() {
+        int d = super.getDepth();
+        for (KnightTour kt : engines)
+            d = Math.max(d, kt.getDepth());
+        return d;
+    }
+
+    /**
+     * Method to return the strategy that won the last race
+     * @return the strategy, or null if none found a tour
+     */
+    public Strategy getWinner() {
+        return winner;
+    }
+
+    /**
+     * Method to return the strategies in the order they are started on a
+     * board size, the most winning first
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @return the strategies
+     */
+    public static Strategy[] getOrder(int rowSize, int colSize) {
+        long[] wins = getWins(rowSize, colSize);
+        List<Strategy> order = new ArrayList<>(Arrays.asList(STRATEGIES));
+        order.sort(Comparator.comparingLong(st -> -wins[st.ordinal()]));
+        return order.toArray(new Strategy[0]);
+    }
+
+    /**
+     * Method to return the wins of every strategy on a board size
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @return the wins, indexed by the ordinal of the strategy
+     */
+    public static long[] getWins(int rowSize, int colSize) {
+        long[] wins = WINS.get(key(rowSize, colSize));
+        if (wins == null)
+            return new long[STRATEGIES.length];
+        synchronized (wins) {
+            return wins.clone();
+        }
+    }
+
+    /**
+     * Method to count a win of a strategy
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param strategy the strategy
+     */
+    private static void recordWin(int rowSize, int colSize,
+            Strategy strategy) {
+        long[] wins = WINS.computeIfAbsent(key(rowSize, colSize),
+                k -> new long[STRATEGIES.length]);
+        synchronized (wins) {
+            wins[strategy.ordinal()]++;
+        }
+    }
+
+    /**
+     * Method to return the key of a board size
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @return the key
+     */
+    private static long key(int rowSize, int colSize) {
+        return (long) rowSize << 32 | colSize;
+    }
+}
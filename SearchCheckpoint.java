@@ -0,0 +1,182 @@
+/**
+ * File: SearchCheckpoint.java
+ * Description: the frontier of a backtracking search, saved to a file
+ * @author Zhiwei Jia
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Class Name: SearchCheckpoint
+ * Description: where a backtracking search is, so it can go on from there
+ *              after the JVM is restarted: the current path, and for each
+ *              cell of it the moves not tried yet from there, as a mask of
+ *              the move indices of KnightTour; the cells visited are the
+ *              ones of the path, so they are not kept
+ *
+ *              The file is the int 0x4B544350 ("KTCP"), the version, the
+ *              rows, the columns, the depth the search never backtracks
+ *              from, the current depth d and the starting cell as ints, the
+ *              nodes explored so far as a long, the d moves of the path
+ *              packed by MoveCodec, then one byte of mask for each depth
+ *              from the floor to d; all numbers are big-endian; it is
+ *              written to a temporary file first and then moved in place,
+ *              so a crash while writing keeps the last checkpoint
+ */
+public final class SearchCheckpoint {
+
+    // the first int of a checkpoint file, and the version of the format
+    private static final int MAGIC = 0x4B544350;
+    private static final int VERSION = 1;
+
+    final int rowSize;
+    final int colSize;
+
+    // the cells of the path from 0 to depth, of which the ones up to floor
+    // are never backtracked
+    final int[] path;
+    final int floor;
+    final int depth;
+
+    // the moves not tried yet from each cell of the path from floor on
+    final byte[] untried;
+
+    // the nodes explored before the checkpoint
+    final long nodes;
+
+    /**
+     * Constructor with the state of a search
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param path the path, of which the cells up to depth are kept
+     * @param floor the depth the search never backtracks from
+     * @param depth the current depth
+     * @param untried the masks of the moves not tried yet from each depth
+     *        from floor to depth
+     * @param nodes the nodes explored so far
+     */
+    SearchCheckpoint(int rowSize, int colSize, int[] path, int floor,
+            int depth, byte[] untried, long nodes) {
+        this.rowSize = rowSize;
+        this.colSize = colSize;
+        this.path = Arrays.copyOf(path, depth + 1);
+        this.floor = floor;
+        this.depth = depth;
+        this.untried = untried;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Method to read a checkpoint file
+     * @param file the file
+     * @return the checkpoint, or null if there is no such file
+     * @throws IOException if the file cannot be read or is broken
+     */
+    public static SearchCheckpoint load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException(file + " is not a checkpoint");
+            int rows = in.readInt();
+            int cols = in.readInt();
+            int floor = in.readInt();
+            int depth = in.readInt();
+            int start = in.readInt();
+            long nodes = in.readLong();
+            if (rows < 1 || cols < 1 || floor < 0 || floor > depth
+                    || depth >= (long) rows * cols || start < 0
+                    || start >= (long) rows * cols)
+                throw new IOException(file + " is broken");
+            byte[] moves = new byte[MoveCodec.packedBytes(depth)];
+            in.readFully(moves);
+            byte[] untried = new byte[depth - floor + 1];
+            in.readFully(untried);
+            int[] path = new int[depth + 1];
+            MoveCodec.unpack(ByteBuffer.wrap(moves), 0, start, cols, path);
+            return new SearchCheckpoint(rows, cols, path, floor, depth,
+                    untried, nodes);
+        } catch (NoSuchFileException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Method to write this checkpoint to a file, replacing it at once
+     * @param file the file
+     * @throws IOException if it cannot be written
+     */
+    public void save(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        byte[] moves = new byte[MoveCodec.packedBytes(depth)];
+        MoveCodec.pack(path, colSize, moves, 0);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rowSize);
+            out.writeInt(colSize);
+            out.writeInt(floor);
+            out.writeInt(depth);
+            out.writeInt(path[0]);
+            out.writeLong(nodes);
+            out.write(moves);
+            out.write(untried);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Method to check whether this is a search of the given board and
+     * starting cell
+     * @param rows the number of rows
+     * @param cols the number of columns
+     * @param start the starting cell
+     * @return whether it is
+     */
+    public boolean isOf(int rows, int cols, int start) {
+        return rowSize == rows && colSize == cols && path[0] == start;
+    }
+
+    /**
+     * Method to return the nodes explored before this checkpoint
+     * @return the number of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Method to return the mask of the move from one cell to another
+     * @param from the cell moved from
+     * @param to the cell moved to, a move away
+     * @param colSize the number of columns
+     * @return the mask, with the bit of the index of the move set
+     */
+    static int moveBit(int from, int to, int colSize) {
+        return 1 << MoveCodec.moveIndex(to / colSize - from / colSize,
+                to % colSize - from % colSize);
+    }
+
+    /**
+     * Method to check whether a move is in a mask
+     * @param mask the mask
+     * @param from the cell moved from
+     * @param to the cell moved to, a move away
+     * @param colSize the number of columns
+     * @return whether it is
+     */
+    static boolean hasMove(int mask, int from, int to, int colSize) {
+        return (mask & moveBit(from, to, colSize)) != 0;
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * File: SearchListener.java
+ * Description: the observer of a search
+ * @author Zhiwei Jia
+ */
+
+/**
+ * Interface Name: SearchListener
+ * Description: told the progress of a search of a KnightTour, from the
+ *              searching threads at every progress report, so it must be
+ *              quick and must not wait for the search; it is given copies
+ *              of the counters, which it may keep
+ */
+public interface SearchListener {
+
+    /**
+     * Method called at every progress report of a search
+     * @param source the algorithm object searching
+     * @param stats the counters of the search so far
+     */
+    void onProgress(KnightTour source, SearchStats stats);
+
+    /**
+     * Method called once a search has ended, nothing by default
+     * @param source the algorithm object
+     * @param stats the counters of the whole search
+     * @param found whether a tour was found
+     */
+    default void onFinish(KnightTour source, SearchStats stats,
+            boolean found) {
+    }
+}
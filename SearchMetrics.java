@@ -0,0 +1,138 @@
+/**
+ * File: SearchMetrics.java
+ * Description: the counters of all searches of the process, over JMX
+ * @author Zhiwei Jia
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Class Name: SearchMetrics
+ * Description: adds up the counters of every search ended in the process,
+ *              once for each search, and shows them as an MBean named
+ *              KnightsTour:type=SearchMetrics once registered, e.g. for
+ *              jconsole
+ */
+public final class SearchMetrics implements SearchMetricsMBean {
+
+    // the name of the MBean
+    public static final String NAME = "KnightsTour:type=SearchMetrics";
+
+    // the counters of the process
+    private static final SearchMetrics INSTANCE = new SearchMetrics();
+
+    private long searches;
+    private long found;
+    private long nanos;
+    private SearchStats total = new SearchStats(SearchStats.MAX_BUCKETS - 1);
+
+    /**
+     * Constructor, only for the one instance
+     */
+    private SearchMetrics() {
+    }
+
+    /**
+     * Method to return the counters of the process
+     * @return the counters
+     */
+    public static SearchMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Method to register the MBean with the platform MBean server, if not
+     * yet
+     */
+    public static void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(NAME);
+            if (!server.isRegistered(name))
+                server.registerMBean(INSTANCE, name);
+        } catch (JMException ex) {
+            System.out.println("No JMX for the searches: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Method to add the counters of a search ended
+     * @param stats the counters of the search
+     * @param tourFound whether it found a tour
+     */
+    synchronized void record(SearchStats stats, boolean tourFound) {
+        searches++;
+        if (tourFound)
+            found++;
+        nanos += stats.getElapsedNanos();
+
+        // depths are only comparable when they are not bucketed
+        SearchStats s = stats;
+        if (stats.bucketWidth != 1) {
+            s = stats.copy();
+            Arrays.fill(s.deadEnds, 0);
+        }
+        total.add(s);
+    }
+
+    @Override
+    public synchronized long getSearches() {
+        return searches;
+    }
+
+    @Override
+    public synchronized long getToursFound() {
+        return found;
+    }
+
+    @Override
+    public synchronized long getNodes() {
+        return total.nodes;
+    }
+
+    @Override
+    public synchronized long getBacktracks() {
+        return total.backtracks;
+    }
+
+    @Override
+    public synchronized String[] getPrunes() {
+        SearchStats.Prune[] reasons = SearchStats.Prune.values();
+        String[] result = new String[reasons.length];
+        for (int i = 0; i < reasons.length; i++)
+            result[i] = reasons[i] + "=" + total.getPrunes(reasons[i]);
+        return result;
+    }
+
+    @Override
+    public synchronized int getMaxDepth() {
+        return total.maxDepth;
+    }
+
+    @Override
+    public synchronized double getSearchSeconds() {
+        return nanos / 1e9;
+    }
+
+    @Override
+    public synchronized double getNodesPerSecond() {
+        return nanos > 0 ? total.nodes * 1e9 / nanos : 0;
+    }
+
+    @Override
+    public synchronized long[] getDeadEnds() {
+        return total.getDeadEnds();
+    }
+
+    @Override
+    public synchronized void reset() {
+        searches = 0;
+        found = 0;
+        nanos = 0;
+        total = new SearchStats(SearchStats.MAX_BUCKETS - 1);
+    }
+}
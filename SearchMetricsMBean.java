@@ -0,0 +1,73 @@
+/**
+ * File: SearchMetricsMBean.java
+ * Description: the management interface of SearchMetrics
+ * @author Zhiwei Jia
+ */
+
+/**
+ * Interface Name: SearchMetricsMBean
+ * Description: the attributes and operations of the counters of all
+ *              searches, as seen over JMX
+ */
+public interface SearchMetricsMBean {
+
+    /**
+     * Method to return the number of searches ended
+     * @return the number of searches
+     */
+    long getSearches();
+
+    /**
+     * Method to return the number of searches that found a tour
+     * @return the number of searches
+     */
+    long getToursFound();
+
+    /**
+     * Method to return the nodes expanded by all searches
+     * @return the number of nodes
+     */
+    long getNodes();
+
+    /**
+     * Method to return the backtracks of all searches
+     * @return the number of backtracks
+     */
+    long getBacktracks();
+
+    /**
+     * Method to return the moves pruned by all searches, for each reason
+     * @return the reasons with their numbers, as "reason=count"
+     */
+    String[] getPrunes();
+
+    /**
+     * Method to return the deepest path reached by any search
+     * @return the depth
+     */
+    int getMaxDepth();
+
+    /**
+     * Method to return the time all searches have taken
+     * @return the time in seconds
+     */
+    double getSearchSeconds();
+
+    /**
+     * Method to return the nodes expanded per second of searching
+     * @return the rate
+     */
+    double getNodesPerSecond();
+
+    /**
+     * Method to return the paths given up at each depth, by all searches
+     * on boards of less than SearchStats.MAX_BUCKETS cells
+     * @return the histogram, by depth
+     */
+    long[] getDeadEnds();
+
+    /**
+     * Method to set all counters to zero
+     */
+    void reset();
+}
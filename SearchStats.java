@@ -0,0 +1,238 @@
+/**
+ * File: SearchStats.java
+ * Description: the counters of a search
+ * @author Zhiwei Jia
+ */
+
+import java.util.Arrays;
+
+/**
+ * Class Name: SearchStats
+ * Description: counts what a search did: the nodes expanded, the
+ *              backtracks, the moves pruned for each reason, the deepest
+ *              path and how many paths ended at each depth, whether by a
+ *              backtrack or by a prune; a searching thread counts into its
+ *              own object with plain increments, which is added to the one
+ *              of the whole search at every progress report, so counting
+ *              costs next to nothing
+ */
+public final class SearchStats {
+
+    /**
+     * Enum Name: Prune
+     * Description: why a path was given up without exploring it
+     */
+    public enum Prune {
+
+        // a start of the minority color on a board of odd cells
+        PARITY,
+
+        // a free cell left with no way in
+        DEAD_CELL,
+
+        // more than one free cell that can only be the last one
+        TWO_ENDS,
+
+        // the free cells split in pieces
+        DISCONNECTED,
+
+        // a state known to have no tour
+        TRANSPOSITION,
+
+        // no way left back to the start of a closed tour
+        CLOSING
+    }
+
+    private static final Prune[] PRUNES = Prune.values();
+
+    // the most buckets of the histogram of dead ends, so it stays small
+    // on huge boards
+    static final int MAX_BUCKETS = 256;
+
+    // the counters, updated directly by the searches
+    long nodes;
+    long backtracks;
+    final long[] prunes = new long[PRUNES.length];
+    int maxDepth;
+    final long[] deadEnds;
+    final int bucketWidth;
+
+    // when the search started and ended, in System.nanoTime()
+    long startNanos;
+    long endNanos;
+
+    /**
+     * Constructor with the deepest path possible
+     * @param numCell the number of cells of the board
+     */
+    public SearchStats(int numCell) {
+        long depths = Math.max(1, numCell + 1L);
+        bucketWidth = (int) ((depths + MAX_BUCKETS - 1) / MAX_BUCKETS);
+        deadEnds = new long[(int) ((depths + bucketWidth - 1) / bucketWidth)];
+    }
+
+    /**
+     * Constructor with the same board as other counters, all zero
+     * @param other the other counters
+     */
+    SearchStats(SearchStats other) {
+        bucketWidth = other.bucketWidth;
+        deadEnds = new long[other.deadEnds.length];
+    }
+
+    /**
+     * Method to add the counters of another object to this one
+     * @param other the other counters, of the same board
+     */
+    void add(SearchStats other) {
+        nodes += other.nodes;
+        backtracks += other.backtracks;
+        for (int i = 0; i < prunes.length; i++)
+            prunes[i] += other.prunes[i];
+        maxDepth = Math.max(maxDepth, other.maxDepth);
+        int n = Math.min(deadEnds.length, other.deadEnds.length);
+        for (int i = 0; i < n; i++)
+            deadEnds[i] += other.deadEnds[i];
+    }
+
+    /**
+     * Method to count a path ending at a depth by a prune
+     * @param reason why it was pruned
+     * @param d the depth
+     */
+    void prune(Prune reason, int d) {
+        prunes[reason.ordinal()]++;
+        deadEnds[d / bucketWidth]++;
+    }
+
+    /**
+     * Method to count a backtrack from a depth
+     * @param d the depth
+     */
+    void backtrack(int d) {
+        backtracks++;
+        deadEnds[d / bucketWidth]++;
+    }
+
+    /**
+     * Method to set all counters to zero
+     */
+    void clear() {
+        nodes = 0;
+        backtracks = 0;
+        maxDepth = 0;
+        Arrays.fill(prunes, 0);
+        Arrays.fill(deadEnds, 0);
+    }
+
+    /**
+     * Method to return a copy of these counters
+     * @return the copy
+     */
+    SearchStats copy() {
+        SearchStats s = new SearchStats(this);
+        s.add(this);
+        s.startNanos = startNanos;
+        s.endNanos = endNanos;
+        return s;
+    }
+
+    /**
+     * Method to return the number of nodes expanded
+     * @return the number of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Method to return the number of backtracks
+     * @return the number of backtracks
+     */
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    /**
+     * Method to return the number of moves pruned for a reason
+     * @param reason the reason
+     * @return the number of prunes
+     */
+    public long getPrunes(Prune reason) {
+        return prunes[reason.ordinal()];
+    }
+
+    /**
+     * Method to return the number of moves pruned for any reason
+     * @return the number of prunes
+     */
+    public long getPrunes() {
+        long sum = 0;
+        for (long p : prunes)
+            sum += p;
+        return sum;
+    }
+
+    /**
+     * Method to return the length of the deepest path reached
+     * @return the depth
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Method to return how many paths were given up at each depth, where
+     * bucket i counts the depths from i * getBucketWidth() on
+     * @return a copy of the histogram
+     */
+    public long[] getDeadEnds() {
+        return deadEnds.clone();
+    }
+
+    /**
+     * Method to return the number of depths counted in each bucket of the
+     * histogram of dead ends, 1 on boards of less than MAX_BUCKETS cells
+     * @return the width of a bucket
+     */
+    public int getBucketWidth() {
+        return bucketWidth;
+    }
+
+    /**
+     * Method to return the time the search has taken, up to now if it is
+     * going on
+     * @return the time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        if (startNanos == 0)
+            return 0;
+        return (endNanos != 0 ? endNanos : System.nanoTime()) - startNanos;
+    }
+
+    /**
+     * Method to return the nodes expanded per second
+     * @return the rate, or 0 before any time passed
+     */
+    public double getNodesPerSecond() {
+        long t = getElapsedNanos();
+        return t > 0 ? nodes * 1e9 / t : 0;
+    }
+
+    @Override
+    /**
+     * Method to return a summary of the counters
+     * @return the summary
+     */
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%,d nodes (%,.0f/s), %,d backtracks, "
+                + "max depth %d", nodes, getNodesPerSecond(), backtracks,
+                maxDepth));
+        for (Prune p : PRUNES)
+            if (prunes[p.ordinal()] > 0)
+                sb.append(String.format(", %,d %s", prunes[p.ordinal()],
+                        p.name().toLowerCase().replace('_', ' ')));
+        return sb.toString();
+    }
+}
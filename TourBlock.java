@@ -0,0 +1,255 @@
+/**
+ * File: TourBlock.java
+ * Description: the small closed tours stitched by DivideAndConquerTour
+ * @author Zhiwei Jia
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class Name: TourBlock
+ * Description: a closed Knight's Tour of a small board, of 5 to 10 rows
+ *              and columns, possibly with one cell left out as a hole; it
+ *              always has the four edges used for stitching it to its
+ *              neighboring blocks, which are (0,w-1)-(2,w-2) to the block
+ *              on its right, (1,1)-(3,0) to the one on its left,
+ *              (h-1,0)-(h-2,2) to the one below and (1,1)-(0,3) to the
+ *              one above; each kind of block is found once by a search
+ *              with those edges forced, and then kept
+ */
+public final class TourBlock {
+
+    // the smallest and the largest side of a block
+    static final int MIN_SIDE = 5;
+    static final int MAX_SIDE = 10;
+
+    // the nodes a search may take for each order of the moves tried, for
+    // a block without a hole and for one with a hole, which may well
+    // have no such tour
+    private static final int BUDGET = 1 << 22;
+    private static final int HOLE_BUDGET = 1 << 16;
+
+    // the blocks found, and the ones found to be impossible
+    private static final ConcurrentHashMap<Integer, TourBlock> BLOCKS =
+            new ConcurrentHashMap<>();
+    private static final TourBlock NONE = new TourBlock(0, 0, -1, null);
+
+    // the number of rows and columns, and the cell left out or -1
+    final int rowSize;
+    final int colSize;
+    final int hole;
+
+    // the two neighbors on the tour of each cell, at 2 * cell and
+    // 2 * cell + 1, as cell indices of the block
+    private final int[] link;
+
+    /**
+     * Constructor with the tour
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param hole the cell left out, or -1
+     * @param link the two neighbors of each cell
+     */
+    private TourBlock(int rowSize, int colSize, int hole, int[] link) {
+        this.rowSize = rowSize;
+        this.colSize = colSize;
+        this.hole = hole;
+        this.link = link;
+    }
+
+    /**
+     * Method to return the block of the given kind, searching for it the
+     * first time
+     * @param rowSize the number of rows, from MIN_SIDE to MAX_SIDE
+     * @param colSize the number of columns, from MIN_SIDE to MAX_SIDE
+     * @param hole the cell left out, or -1 for none
+     * @return the block, or null if no such tour has been found
+     */
+    static TourBlock of(int rowSize, int colSize, int hole) {
+        int key = (rowSize * 16 + colSize) * 128 + hole + 1;
+        TourBlock block = BLOCKS.get(key);
+        if (block == null) {
+            block = find(rowSize, colSize, hole);
+            BLOCKS.putIfAbsent(key, block == null ? NONE : block);
+        }
+        return block == NONE ? null : block;
+    }
+
+    /**
+     * Method to return one neighbor of a cell on the tour
+     * @param cell the cell, as row * colSize + col of the block
+     * @param i 0 or 1, for which of its two neighbors
+     * @return the neighbor
+     */
+    int link(int cell, int i) {
+        return link[2 * cell + i];
+    }
+
+    /**
+     * Method to search for a block with the stitching edges, tried with
+     * the moves in every order until one is found
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param hole the cell left out, or -1 for none
+     * @return the block, or null if none is found within the budget
+     */
+    private static TourBlock find(int rowSize, int colSize, int hole) {
+        int numCell = rowSize * colSize;
+
+        // the partners of each cell on the forced edges
+        int[] forced = new int[2 * numCell];
+        Arrays.fill(forced, -1);
+        int[][] edges = {{0, colSize - 1, 2, colSize - 2}, {1, 1, 3, 0},
+                {rowSize - 1, 0, rowSize - 2, 2}, {1, 1, 0, 3}};
+        for (int[] e : edges) {
+            int a = e[0] * colSize + e[1];
+            int b = e[2] * colSize + e[3];
+            if (a == hole || b == hole)
+                return null;
+            forced[forced[2*a] < 0 ? 2*a : 2*a + 1] = b;
+            forced[forced[2*b] < 0 ? 2*b : 2*b + 1] = a;
+        }
+
+        int[] path = new int[numCell];
+        for (int rotate = 0; rotate < 8; rotate++) {
+            int len = search(rowSize, colSize, hole, forced, path, rotate,
+                    hole < 0 ? BUDGET : HOLE_BUDGET);
+            if (len == 0)
+                continue;
+            int[] link = new int[2 * numCell];
+            Arrays.fill(link, -1);
+            for (int i = 0; i < len; i++) {
+                link[2 * path[i]] = path[(i + 1) % len];
+                link[2 * path[i] + 1] = path[(i + len - 1) % len];
+            }
+            return new TourBlock(rowSize, colSize, hole, link);
+        }
+        return null;
+    }
+
+    /**
+     * Method to search for a closed tour going (1,1), (3,0), ..., (0,3)
+     * and back to (1,1), which takes every other forced edge as soon as
+     * it reaches one of its cells, trying the cells of fewer onward moves
+     * first
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param hole the cell left out, or -1 for none
+     * @param forced the partners of each cell on the forced edges
+     * @param path the array to store the tour
+     * @param rotate the first move in the order of the moves
+     * @param budget the nodes the search may take
+     * @return the number of cells of the tour, or 0 if none is found
+     */
+    private static int search(int rowSize, int colSize, int hole,
+            int[] forced, int[] path, int rotate, int budget) {
+        int numCell = rowSize * colSize;
+        int total = hole < 0 ? numCell : numCell - 1;
+        int last = 3;    // the cell (0,3)
+        boolean[] visited = new boolean[numCell];
+        if (hole >= 0)
+            visited[hole] = true;
+
+        // the candidates of the next move at each depth, and which one
+        // to try next
+        int[][] cand = new int[total][8];
+        int[] candCount = new int[total];
+        int[] candIdx = new int[total];
+
+        path[0] = colSize + 1;
+        path[1] = 3 * colSize;
+        visited[path[0]] = visited[path[1]] = true;
+        int d = 1;
+        candCount[d] = expand(rowSize, colSize, path, d, visited, forced,
+                last, total, rotate, cand[d]);
+        candIdx[d] = 0;
+        for (int nodes = 0; nodes < budget; nodes++) {
+            if (d == total - 1)
+                return total;
+            if (candIdx[d] < candCount[d]) {
+                int next = cand[d][candIdx[d]++];
+                visited[next] = true;
+                path[++d] = next;
+                candCount[d] = expand(rowSize, colSize, path, d, visited,
+                        forced, last, total, rotate, cand[d]);
+                candIdx[d] = 0;
+            } else {
+                if (d == 1)
+                    return 0;
+                visited[path[d--]] = false;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Method to collect the moves allowed from the end of a path, in the
+     * order of their onward degree
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param path the path
+     * @param d the index of its end
+     * @param visited the cells visited
+     * @param forced the partners of each cell on the forced edges
+     * @param last the last cell of the tour
+     * @param total the number of cells of the tour
+     * @param rotate the first move in the order of the moves
+     * @param cand the array to store the moves
+     * @return the number of moves
+     */
+    private static int expand(int rowSize, int colSize, int[] path, int d,
+            boolean[] visited, int[] forced, int last, int total,
+            int rotate, int[] cand) {
+        int cell = path[d];
+
+        // a forced edge not coming from the previous cell must be next
+        int must = -1;
+        for (int i = 0; i < 2; i++) {
+            int p = forced[2 * cell + i];
+            if (p < 0 || p == path[d-1] || p == path[0] && d == total - 1)
+                continue;
+            if (visited[p])
+                return 0;
+            must = p;
+        }
+
+        int row = cell / colSize;
+        int col = cell % colSize;
+        int[] degree = new int[8];
+        int count = 0;
+        for (int j = 0; j < 8; j++) {
+            int m = (j + rotate) & 7;
+            int r = row + KnightTour.ROW_MOVES[m];
+            int c = col + KnightTour.COL_MOVES[m];
+            if (r < 0 || r >= rowSize || c < 0 || c >= colSize)
+                continue;
+            int next = r * colSize + c;
+            if (visited[next] || must >= 0 && next != must)
+                continue;
+
+            // the tour closes from (0,3), so it comes last
+            if ((next == last) != (d == total - 2))
+                continue;
+
+            // insertion by its onward degree
+            int deg = 0;
+            for (int k = 0; k < 8; k++) {
+                int rr = r + KnightTour.ROW_MOVES[k];
+                int cc = c + KnightTour.COL_MOVES[k];
+                if (rr >= 0 && rr < rowSize && cc >= 0 && cc < colSize
+                        && !visited[rr * colSize + cc])
+                    deg++;
+            }
+            int i = count++;
+            while (i > 0 && degree[i-1] > deg) {
+                cand[i] = cand[i-1];
+                degree[i] = degree[i-1];
+                i--;
+            }
+            cand[i] = next;
+            degree[i] = deg;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * File: TourCache.java
+ * Description: a process-wide cache of the tours found, up to symmetry
+ * @author Zhiwei Jia
+ */
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class Name: TourCache
+ * Description: keeps one tour for each class of starting cells that are
+ *              images of each other under the symmetries of the board, the
+ *              8 of a square board or the 4 of a rectangular one; a tour
+ *              is stored for the canonical start of its class, which is
+ *              the image of the smallest index, and is handed to any other
+ *              start of the class by mapping all its cells in linear time
+ */
+public final class TourCache {
+
+    // the largest board whose tours are kept
+    static final int MAX_CELLS = 1 << 16;
+
+    // the inverse of each symmetry, by their numbers in transform()
+    private static final int[] INVERSE = {0, 1, 2, 3, 4, 6, 5, 7};
+
+    // the tours kept, from the canonical start of each class
+    private static final ConcurrentHashMap<Key, int[]> TOURS =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Constructor, not to be used
+     */
+    private TourCache() {
+    }
+
+    /**
+     * Method to return a tour from a starting cell, if one of its class
+     * has been kept
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param start the starting cell
+     * @return the tour as cell indices, or null if none has been kept
+     */
+    public static int[] get(int rowSize, int colSize, int start) {
+        int t = canonical(rowSize, colSize, start);
+        int[] kept = TOURS.get(new Key(rowSize, colSize,
+                transform(t, start, rowSize, colSize)));
+        if (kept == null)
+            return null;
+
+        // map the tour back to the given start
+        int[] tour = new int[kept.length];
+        int back = INVERSE[t];
+        for (int i = 0; i < kept.length; i++)
+            tour[i] = transform(back, kept[i], rowSize, colSize);
+        return tour;
+    }
+
+    /**
+     * Method to keep a tour for the class of its starting cell
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param tour the tour as cell indices
+     */
+    public static void put(int rowSize, int colSize, int[] tour) {
+        if (tour.length > MAX_CELLS)
+            return;
+        int t = canonical(rowSize, colSize, tour[0]);
+        int[] kept = new int[tour.length];
+        for (int i = 0; i < tour.length; i++)
+            kept[i] = transform(t, tour[i], rowSize, colSize);
+        TOURS.putIfAbsent(new Key(rowSize, colSize, kept[0]), kept);
+    }
+
+    /**
+     * Method to remove all tours kept
+     */
+    public static void clear() {
+        TOURS.clear();
+    }
+
+    /**
+     * Method to return the number of tours kept
+     * @return the number of tours
+     */
+    public static int size() {
+        return TOURS.size();
+    }
+
+    /**
+     * Method to find the symmetry taking a cell to the canonical cell of
+     * its class
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param cell the cell
+     * @return the number of the symmetry
+     */
+    static int canonical(int rowSize, int colSize, int cell) {
+        int count = rowSize == colSize ? 8 : 4;
+        int best = 0;
+        for (int t = 1; t < count; t++)
+            if (transform(t, cell, rowSize, colSize)
+                    < transform(best, cell, rowSize, colSize))
+                best = t;
+        return best;
+    }
+
+    /**
+     * Method to map a cell by a symmetry of the board, where the ones
+     * numbered from 4 exist only on square boards
+     * @param t the number of the symmetry
+     * @param cell the cell
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @return the image of the cell
+     */
+    static int transform(int t, int cell, int rowSize, int colSize) {
+        int r = cell / colSize;
+        int c = cell % colSize;
+        int rr = rowSize - 1 - r;
+        int cc = colSize - 1 - c;
+        switch (t) {
+            case 0: return cell;
+            case 1: return r * colSize + cc;
+            case 2: return rr * colSize + c;
+            case 3: return rr * colSize + cc;
+            case 4: return c * colSize + r;
+            case 5: return c * colSize + rr;
+            case 6: return cc * colSize + r;
+            default: return cc * colSize + rr;
+        }
+    }
+
+    /**
+     * Class Name: Key
+     * Description: the size of a board and a canonical starting cell
+     */
+    private static final class Key {
+
+        private final int rowSize;
+        private final int colSize;
+        private final int start;
+
+        /**
+         * Constructor with the size of the board and the start
+         * @param rowSize the number of rows
+         * @param colSize the number of columns
+         * @param start the canonical starting cell
+         */
+        Key(int rowSize, int colSize, int start) {
+            this.rowSize = rowSize;
+            this.colSize = colSize;
+            this.start = start;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return rowSize == k.rowSize && colSize == k.colSize
+                    && start == k.start;
+        }
+
+        @Override
+        public int hashCode() {
+            return (rowSize * 31 + colSize) * 31 + start;
+        }
+    }
+}
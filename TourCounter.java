@@ -0,0 +1,431 @@
+/**
+ * File: TourCounter.java
+ * Description: counting all open and closed tours from every starting cell
+ * @author Zhiwei Jia
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Class Name: TourCounter
+ * Description: counts, without JavaFX, every tour from every starting cell
+ *              of a board of at most 64 cells, by the counting search of
+ *              BitSearch; only one starting cell of each set of cells
+ *              mapped onto each other by a symmetry of the board is
+ *              searched, and the search tree below each of them is cut
+ *              into units, the paths of a few moves, which the threads
+ *              take one at a time; each thread counts into its own
+ *              objects, and a unit done is only published through its own
+ *              flag, so the threads never wait for each other
+ *
+ *              The main thread prints the progress and the time left, and
+ *              appends the units done to the checkpoint file, if any, every
+ *              few seconds; run again with the same file, it only counts
+ *              the units not in it, so a long count may be stopped at any
+ *              time and resumed, losing only the last few seconds
+ *
+ *              Usage: java TourCounter rows cols [--threads N]
+ *                                      [--split D] [--checkpoint file]
+ *
+ *              A tour is counted from its first cell, so an open tour is
+ *              counted from both of its ends, and a closed one, which can
+ *              start anywhere, in both directions from every cell
+ */
+public class TourCounter {
+
+    // the time between two reports of the progress, in milliseconds
+    private static final int REPORT_MILLIS = 5000;
+
+    // the first line of a checkpoint file
+    private static final String MAGIC = "# TourCounter";
+
+    private final int rowSize;
+    private final int colSize;
+    private final int numCell;
+    private final int split;
+
+    // the starting cell each cell is mapped onto by a symmetry, which is
+    // the one searched for it
+    private final int[] canonical;
+
+    // the paths of the units, all from the cells searched
+    private final List<int[]> units = new ArrayList<>();
+
+    // the counts of the units, each written by the thread that counted
+    // it before setting its flag
+    private final long[] open;
+    private final long[] closed;
+    private final AtomicIntegerArray done;
+
+    // the next unit to take
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Constructor with the board and the length of the paths of the units
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param split the number of cells of the path of a unit
+     * @throws IllegalArgumentException if the board has more than 64 cells
+     */
+    public TourCounter(int rowSize, int colSize, int split)
+            throws IllegalArgumentException {
+        if (rowSize < 1 || colSize < 1
+                || (long) rowSize * colSize > BitBoard.MAX_CELLS)
+            throw new IllegalArgumentException("cannot count the tours of "
+                    + rowSize + "x" + colSize);
+        this.rowSize = rowSize;
+        this.colSize = colSize;
+        numCell = rowSize * colSize;
+        this.split = Math.max(1, Math.min(split, numCell));
+
+        canonical = new int[numCell];
+        for (int cell = 0; cell < numCell; cell++) {
+            canonical[cell] = cell;
+            for (int image : images(cell))
+                canonical[cell] = Math.min(canonical[cell], image);
+        }
+
+        // on a board of odd number of cells, no tour starts on the color
+        // of fewer cells
+        for (int cell = 0; cell < numCell; cell++) {
+            boolean minority = numCell % 2 == 1
+                    && (cell / colSize + cell % colSize) % 2 == 1;
+            if (canonical[cell] == cell && !minority) {
+                int[] path = new int[this.split];
+                path[0] = cell;
+                addUnits(path, 1, 1L << cell);
+            }
+        }
+        open = new long[units.size()];
+        closed = new long[units.size()];
+        done = new AtomicIntegerArray(units.size());
+    }
+
+    /**
+     * main method for running a count
+     * @param args the options, see the description of this class
+     * @throws IOException if the checkpoint file cannot be used
+     * @throws InterruptedException if interrupted while counting
+     */
+    public static void main(String[] args)
+            throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: java TourCounter rows cols "
+                    + "[--threads N] [--split D] [--checkpoint file]");
+            System.exit(1);
+        }
+        int rows = Integer.parseInt(args[0]);
+        int cols = Integer.parseInt(args[1]);
+        int threads = Runtime.getRuntime().availableProcessors();
+        int split = Math.min(9, Math.max(2, rows * cols / 4));
+        Path checkpoint = null;
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--split": split = Integer.parseInt(args[++i]); break;
+                case "--checkpoint": checkpoint = Paths.get(args[++i]); break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+        }
+
+        TourCounter counter = new TourCounter(rows, cols, split);
+        if (checkpoint != null) {
+            int resumed = counter.resume(checkpoint);
+            if (resumed > 0)
+                System.err.println("Resumed " + resumed + " of "
+                        + counter.getUnitCount() + " units from "
+                        + checkpoint);
+        }
+        if (counter.run(threads, checkpoint))
+            counter.print();
+    }
+
+    /**
+     * Method to return the number of units
+     * @return the number of units
+     */
+    public int getUnitCount() {
+        return units.size();
+    }
+
+    /**
+     * Method to collect the units, the paths of split cells from a path,
+     * leaving out the ones stuck before
+     * @param path the path
+     * @param len the length of the path
+     * @param visited the cells of the path
+     */
+    private void addUnits(int[] path, int len, long visited) {
+        if (len == split) {
+            units.add(path.clone());
+            return;
+        }
+        int row = path[len - 1] / colSize;
+        int col = path[len - 1] % colSize;
+        for (int m = 0; m < 8; m++) {
+            int r = row + KnightTour.ROW_MOVES[m];
+            int c = col + KnightTour.COL_MOVES[m];
+            if (r < 0 || r >= rowSize || c < 0 || c >= colSize)
+                continue;
+            int cell = r * colSize + c;
+            if ((visited & 1L << cell) != 0)
+                continue;
+            path[len] = cell;
+            addUnits(path, len + 1, visited | 1L << cell);
+        }
+    }
+
+    /**
+     * Method to return the images of a cell under the symmetries of the
+     * board, the flips and, on a square board, the diagonal ones too
+     * @param cell the cell
+     * @return the images, including the cell itself
+     */
+    private int[] images(int cell) {
+        int r = cell / colSize;
+        int c = cell % colSize;
+        int fr = rowSize - 1 - r;
+        int fc = colSize - 1 - c;
+        if (rowSize != colSize)
+            return new int[] {cell, r * colSize + fc, fr * colSize + c,
+                    fr * colSize + fc};
+        return new int[] {cell, r * colSize + fc, fr * colSize + c,
+                fr * colSize + fc, c * colSize + r, c * colSize + fr,
+                fc * colSize + r, fc * colSize + fr};
+    }
+
+    /**
+     * Method to mark the units in a checkpoint file as done, with their
+     * counts
+     * @param file the checkpoint file, which may not exist yet
+     * @return the number of units resumed
+     * @throws IOException if the file cannot be read, or is of another
+     *         count
+     */
+    public int resume(Path file) throws IOException {
+        if (!Files.exists(file))
+            return 0;
+        int resumed = 0;
+        try (BufferedReader in = Files.newBufferedReader(file,
+                StandardCharsets.UTF_8)) {
+            String header = in.readLine();
+            if (header == null)
+                return 0;
+            if (!header.equals(header()))
+                throw new IOException(file + " is not of this count: "
+                        + header);
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] f = line.trim().split(" ");
+
+                // a line cut short by stopping is counted again
+                if (f.length != 3)
+                    continue;
+                int u = Integer.parseInt(f[0]);
+                open[u] = Long.parseLong(f[1]);
+                closed[u] = Long.parseLong(f[2]);
+                if (done.getAndSet(u, 1) == 0)
+                    resumed++;
+            }
+        } catch (RuntimeException ex) {
+            throw new IOException(file + " is broken: " + ex);
+        }
+        return resumed;
+    }
+
+    /**
+     * Method to return the first line of the checkpoint file of this count
+     * @return the line
+     */
+    private String header() {
+        return MAGIC + " " + rowSize + " " + colSize + " " + split + " "
+                + units.size();
+    }
+
+    /**
+     * Method to count the units not done on some threads, reporting the
+     * progress and writing the checkpoint file until all are done
+     * @param threads the number of threads
+     * @param checkpoint the checkpoint file, or null for none
+     * @return whether all units are done, or false if a thread failed
+     * @throws IOException if the checkpoint file cannot be written
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean run(int threads, Path checkpoint)
+            throws IOException, InterruptedException {
+        boolean[] written = new boolean[units.size()];
+        int left = 0;
+        for (int u = 0; u < units.size(); u++) {
+            written[u] = done.get(u) != 0;
+            if (!written[u])
+                left++;
+        }
+
+        KnightTour[] owners = new KnightTour[threads];
+        CountDownLatch finished = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            owners[i] = new KnightTour(rowSize, colSize);
+            KnightTour owner = owners[i];
+            Thread worker = new Thread(() -> {
+                try {
+                    work(owner);
+                } finally {
+                    finished.countDown();
+                }
+            }, "TourCounter-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        Writer out = null;
+        if (checkpoint != null) {
+            boolean fresh = !Files.exists(checkpoint)
+                    || Files.size(checkpoint) == 0;
+            out = Files.newBufferedWriter(checkpoint, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            if (fresh)
+                out.write(header() + "\n");
+        }
+        long t0 = System.nanoTime();
+        int counted = 0;
+        try {
+            boolean alive = true;
+            while (alive) {
+                alive = !finished.await(REPORT_MILLIS, TimeUnit.MILLISECONDS);
+
+                // keep the units done since the last time
+                for (int u = 0; u < units.size(); u++) {
+                    if (written[u] || done.get(u) == 0)
+                        continue;
+                    written[u] = true;
+                    counted++;
+                    if (out != null)
+                        out.write(u + " " + open[u] + " " + closed[u] + "\n");
+                }
+                if (out != null)
+                    out.flush();
+                long nodes = 0;
+                for (KnightTour owner : owners)
+                    nodes += owner.getNodeCount();
+                report(counted, left, nodes, System.nanoTime() - t0);
+            }
+        } finally {
+            if (out != null)
+                out.close();
+        }
+        return counted == left;
+    }
+
+    /**
+     * Method to take and count units until none is left, on one thread
+     * @param owner the algorithm object of this thread, which is told the
+     *        progress
+     */
+    private void work(KnightTour owner) {
+        BitSearch search = new BitSearch(BitBoard.of(rowSize, colSize), owner);
+        int[] path = new int[numCell];
+        long[] counts = new long[2];
+        int u;
+        while ((u = next.getAndIncrement()) < units.size()) {
+            if (done.get(u) != 0)
+                continue;
+            int[] unit = units.get(u);
+            System.arraycopy(unit, 0, path, 0, unit.length);
+            counts[0] = 0;
+            counts[1] = 0;
+            if (!search.count(path, unit.length, counts))
+                return;
+            open[u] = counts[0];
+            closed[u] = counts[1];
+            done.set(u, 1);
+        }
+    }
+
+    /**
+     * Method to print the progress and the time left, guessed from the
+     * units done so far in this run
+     * @param counted the units done in this run
+     * @param left the units to do in this run
+     * @param nodes the nodes explored in this run
+     * @param nanos the time of this run
+     */
+    private static void report(int counted, int left, long nodes, long nanos) {
+        double seconds = nanos / 1e9;
+        String eta = counted == 0 ? "?" : duration(
+                seconds / counted * (left - counted));
+        System.err.printf("%d/%d units, %,d nodes (%,.0f/s), %s elapsed, "
+                + "%s left%n", counted, left, nodes,
+                nodes / Math.max(seconds, 1e-9), duration(seconds), eta);
+    }
+
+    /**
+     * Method to format seconds as hours, minutes and seconds
+     * @param seconds the seconds
+     * @return the formatted time
+     */
+    private static String duration(double seconds) {
+        long s = Math.round(seconds);
+        return String.format("%d:%02d:%02d", s / 3600, s / 60 % 60, s % 60);
+    }
+
+    /**
+     * Method to return the number of open and closed tours from each cell,
+     * once all units are done
+     * @return the counts of each cell, the open ones at index 0 and the
+     *         closed ones at index 1
+     */
+    public long[][] getCounts() {
+        long[] byStart = new long[numCell];
+        long[] closedByStart = new long[numCell];
+        for (int u = 0; u < units.size(); u++) {
+            int start = units.get(u)[0];
+            byStart[start] += open[u];
+            closedByStart[start] += closed[u];
+        }
+        long[][] counts = new long[2][numCell];
+        for (int cell = 0; cell < numCell; cell++) {
+            counts[0][cell] = byStart[canonical[cell]];
+            counts[1][cell] = closedByStart[canonical[cell]];
+        }
+        return counts;
+    }
+
+    /**
+     * Method to print the counts of every starting cell as two grids, and
+     * their totals
+     */
+    public void print() {
+        long[][] counts = getCounts();
+        String[] titles = {"Tours from each cell:", "Closed tours from "
+                + "each cell:"};
+        for (int k = 0; k < 2; k++) {
+            System.out.println(titles[k]);
+            long total = 0;
+            for (int r = 0; r < rowSize; r++) {
+                StringBuilder sb = new StringBuilder();
+                for (int c = 0; c < colSize; c++) {
+                    long n = counts[k][r * colSize + c];
+                    total += n;
+                    sb.append(String.format("%12d", n));
+                }
+                System.out.println(sb);
+            }
+            System.out.println("Total: " + total);
+        }
+    }
+}
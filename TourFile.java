@@ -0,0 +1,351 @@
+/**
+ * File: TourFile.java
+ * Description: a tour stored in a file, read by seeking to any step
+ * @author Zhiwei Jia
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Class Name: TourFile
+ * Description: a tour of any length in a file, memory-mapped when read;
+ *              the file is the magic "KTTF", the version, the rows and the
+ *              columns of the board, the row and the column of the
+ *              starting cell, the number of moves as a long and the jumps
+ *              a and b of the Leaper touring, followed by blocks of
+ *              BLOCK_MOVES moves; each block starts with the row and the
+ *              column of the cell it starts from, then its moves packed by
+ *              MoveCodec in 3 bits each, so the cell at any step is found
+ *              by decoding at most one block; all numbers are
+ *              big-endian; files of version 1, with no leaper, are tours
+ *              of the knight
+ */
+public final class TourFile implements Closeable {
+
+    // the moves of each block
+    public static final int BLOCK_MOVES = 1 << 12;
+
+    private static final int MAGIC = 0x4B54_5446;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 40;
+    private static final int BLOCK_BYTES = 8
+            + MoveCodec.packedBytes(BLOCK_MOVES);
+
+    // the header of version 1, which has no leaper
+    private static final int V1_HEADER_BYTES = 32;
+
+    // the blocks mapped together, about 100 MB
+    private static final int WINDOW_BLOCKS = 1 << 16;
+
+    private final FileChannel channel;
+    private final int rowSize;
+    private final int colSize;
+    private final long start;
+    private final long moves;
+    private final Leaper leaper;
+    private final int headerBytes;
+
+    // the parts of the file mapped so far
+    private final MappedByteBuffer[] windows;
+
+    /**
+     * Constructor with an open file
+     * @param channel the file
+     * @throws IOException if it is not a tour file
+     */
+    private TourFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES);
+        head.limit(V1_HEADER_BYTES);
+        while (head.hasRemaining() && channel.read(head) >= 0)
+            continue;
+        int version = head.getInt(4);
+        if (head.hasRemaining() || head.getInt(0) != MAGIC
+                || version != 1 && version != VERSION)
+            throw new IOException("not a tour file");
+        headerBytes = version == 1 ? V1_HEADER_BYTES : HEADER_BYTES;
+        head.limit(headerBytes);
+        while (head.hasRemaining() && channel.read(head) >= 0)
+            continue;
+        if (head.hasRemaining())
+            throw new IOException("not a tour file");
+        rowSize = head.getInt(8);
+        colSize = head.getInt(12);
+        start = (long) head.getInt(16) * colSize + head.getInt(20);
+        moves = head.getLong(24);
+        try {
+            leaper = version == 1 ? Leaper.KNIGHT
+                    : Leaper.of(head.getInt(32), head.getInt(36));
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("not a tour file: " + ex.getMessage());
+        }
+        long blocks = (moves + BLOCK_MOVES - 1) / BLOCK_MOVES;
+        windows = new MappedByteBuffer[
+                (int) ((blocks + WINDOW_BLOCKS - 1) / WINDOW_BLOCKS)];
+    }
+
+    /**
+     * Method to open a tour file for reading
+     * @param file the file
+     * @return the tour
+     * @throws IOException if the file cannot be read or is not a tour
+     */
+    public static TourFile open(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new TourFile(ch);
+        } catch (IOException ex) {
+            ch.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Method to return the number of rows of the board
+     * @return the number of rows
+     */
+    public int getRowSize() {
+        return rowSize;
+    }
+
+    /**
+     * Method to return the number of columns of the board
+     * @return the number of columns
+     */
+    public int getColSize() {
+        return colSize;
+    }
+
+    /**
+     * Method to return the piece touring the board
+     * @return the leaper
+     */
+    public Leaper getLeaper() {
+        return leaper;
+    }
+
+    /**
+     * Method to return the number of cells of the tour
+     * @return the number of cells, one more than its moves
+     */
+    public long length() {
+        return moves + 1;
+    }
+
+    /**
+     * Method to return the cell at a step of the tour, decoding no more
+     * than one block
+     * @param k the step, 0 for the starting cell
+     * @return the cell as row * colSize + col
+     * @throws IOException if the file cannot be read
+     * @throws IndexOutOfBoundsException if there is no such step
+     */
+    public long get(long k) throws IOException, IndexOutOfBoundsException {
+        if (k < 0 || k > moves)
+            throw new IndexOutOfBoundsException("step " + k + ", moves "
+                    + moves);
+        if (k == 0)
+            return start;
+
+        // from the checkpoint of the block of the move into step k
+        long block = (k - 1) / BLOCK_MOVES;
+        ByteBuffer buf = window(block);
+        int base = (int) (block % WINDOW_BLOCKS) * BLOCK_BYTES;
+        int row = buf.getInt(base);
+        int col = buf.getInt(base + 4);
+        int steps = (int) (k - block * BLOCK_MOVES);
+        for (int i = 0; i < steps; i++) {
+            int m = MoveCodec.get(buf, base + 8, i);
+            row += leaper.rowMove(m);
+            col += leaper.colMove(m);
+        }
+        return (long) row * colSize + col;
+    }
+
+    /**
+     * Method to return a move of the tour
+     * @param k the number of the move, starting from 0
+     * @return the index of the move
+     * @throws IOException if the file cannot be read
+     * @throws IndexOutOfBoundsException if there is no such move
+     */
+    public int move(long k) throws IOException, IndexOutOfBoundsException {
+        if (k < 0 || k >= moves)
+            throw new IndexOutOfBoundsException("move " + k + ", moves "
+                    + moves);
+        long block = k / BLOCK_MOVES;
+        int base = (int) (block % WINDOW_BLOCKS) * BLOCK_BYTES;
+        return MoveCodec.get(window(block), base + 8, k % BLOCK_MOVES);
+    }
+
+    /**
+     * Method to return the mapped part of the file holding a block
+     * @param block the number of the block
+     * @return the part of the file, starting at its first block
+     * @throws IOException if the file cannot be mapped
+     */
+    private ByteBuffer window(long block) throws IOException {
+        int w = (int) (block / WINDOW_BLOCKS);
+        MappedByteBuffer buf = windows[w];
+        if (buf == null) {
+            long from = headerBytes + (long) w * WINDOW_BLOCKS * BLOCK_BYTES;
+            long size = Math.min((long) WINDOW_BLOCKS * BLOCK_BYTES,
+                    channel.size() - from);
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, from, size);
+            windows[w] = buf;
+        }
+        return buf;
+    }
+
+    @Override
+    /**
+     * Method to close the file
+     * @throws IOException if it cannot be closed
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Class Name: Writer
+     * Description: a TourSink writing a tour file, one block at a time,
+     *              so it needs no more memory than a block; the moves it
+     *              takes are the ones of the leaper it is created for
+     */
+    public static final class Writer implements TourSink, Closeable {
+
+        private final FileChannel channel;
+        private final Leaper leaper;
+
+        // the block being filled, the moves in it, and the cell reached
+        private final byte[] block = new byte[BLOCK_BYTES];
+        private int count;
+        private int row;
+        private int col;
+        private long moves;
+
+        /**
+         * Constructor with the file to write, which is replaced, for a
+         * tour of the knight
+         * @param file the file
+         * @throws IOException if it cannot be opened
+         */
+        public Writer(Path file) throws IOException {
+            this(file, Leaper.KNIGHT);
+        }
+
+        /**
+         * Constructor with the file to write, which is replaced, and the
+         * piece whose moves are streamed
+         * @param file the file
+         * @param leaper the piece
+         * @throws IOException if it cannot be opened
+         */
+        public Writer(Path file, Leaper leaper) throws IOException {
+            this.leaper = leaper;
+            channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        @Override
+        public void begin(int rowSize, int colSize, int row, int col)
+                throws IOException {
+            ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES);
+            head.putInt(MAGIC).putInt(VERSION).putInt(rowSize).putInt(colSize)
+                    .putInt(row).putInt(col).putLong(0)
+                    .putInt(leaper.getA()).putInt(leaper.getB());
+            head.flip();
+            channel.position(0);
+            write(head);
+            this.row = row;
+            this.col = col;
+            moves = 0;
+            startBlock();
+        }
+
+        @Override
+        public void move(int move) throws IOException {
+            if (count == BLOCK_MOVES) {
+                write(ByteBuffer.wrap(block));
+                startBlock();
+            }
+            MoveCodec.put(block, 8, count++, move);
+            row += leaper.rowMove(move);
+            col += leaper.colMove(move);
+            moves++;
+        }
+
+        @Override
+        public void end() throws IOException {
+            if (count > 0)
+                write(ByteBuffer.wrap(block, 0,
+                        8 + MoveCodec.packedBytes(count)));
+            ByteBuffer n = ByteBuffer.allocate(8);
+            n.putLong(moves).flip();
+            channel.position(24);
+            write(n);
+        }
+
+        /**
+         * Method to start a new block from the current cell
+         */
+        private void startBlock() {
+            Arrays.fill(block, (byte) 0);
+            ByteBuffer.wrap(block).putInt(row).putInt(col);
+            count = 0;
+        }
+
+        /**
+         * Method to write all bytes of a buffer
+         * @param buf the buffer
+         * @throws IOException if it cannot be written
+         */
+        private void write(ByteBuffer buf) throws IOException {
+            while (buf.hasRemaining())
+                channel.write(buf);
+        }
+
+        @Override
+        /**
+         * Method to close the file
+         * @throws IOException if it cannot be closed
+         */
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * main method for writing a tour file of a large board without keeping
+     * the tour in memory
+     * @param args the file, the rows, the columns, and the row and the
+     *        column of the starting cell, 0 0 by default
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: java TourFile file rows cols [row col]");
+            System.exit(1);
+        }
+        int rows = Integer.parseInt(args[1]);
+        int cols = Integer.parseInt(args[2]);
+        int row = args.length > 4 ? Integer.parseInt(args[3]) : 0;
+        int col = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+        long t0 = System.nanoTime();
+        boolean found;
+        try (Writer out = new Writer(Paths.get(args[0]))) {
+            found = new DivideAndConquerTour(rows, cols).tour(row, col, out);
+        }
+        System.out.printf("%s in %.1f s%n", found ? "Written" : "No tour",
+                (System.nanoTime() - t0) / 1e9);
+    }
+}
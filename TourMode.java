@@ -0,0 +1,53 @@
+/**
+ * File: TourMode.java
+ * Description: the algorithms offered, by name
+ * @author Zhiwei Jia
+ */
+
+import java.util.Locale;
+
+/**
+ * Enum Name: TourMode
+ * Description: the algorithms for finding a tour, each creating its own
+ *              KnightTour object for a board
+ */
+public enum TourMode {
+
+    BACKTRACK, WARNSDORFF, PARALLEL, DIVIDE, CLOSED, PORTFOLIO;
+
+    /**
+     * Method to create the algorithm object for a board
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @return the algorithm object
+     */
+    public KnightTour create(int rowSize, int colSize) {
+        switch (this) {
+            case BACKTRACK: return new KnightTour(rowSize, colSize);
+            case PARALLEL: return new ParallelKnightTour(rowSize, colSize);
+            case DIVIDE: return new DivideAndConquerTour(rowSize, colSize);
+            case CLOSED: return new ClosedTour(rowSize, colSize);
+            case PORTFOLIO: return new PortfolioTour(rowSize, colSize);
+            default: return new WarnsdorffTour(rowSize, colSize);
+        }
+    }
+
+    /**
+     * Method to find a mode by its name, in any case
+     * @param name the name
+     * @return the mode
+     * @throws IllegalArgumentException if there is no such mode
+     */
+    public static TourMode parse(String name) throws IllegalArgumentException {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    @Override
+    /**
+     * Method to return the name in lower case
+     * @return the name
+     */
+    public String toString() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * File: TourQueue.java
+ * Description: a bounded queue passing a tour from a search to a viewer
+ * @author Zhiwei Jia
+ */
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Class Name: TourQueue
+ * Description: a TourSink holding the cells of the tour streamed to it,
+ *              as row * colSize + col, until another thread takes them, so
+ *              a tour can be shown while an algorithm building it in order,
+ *              such as DivideAndConquerTour, is still running; the others
+ *              stream it only once found, which is no later than before
+ *
+ *              The cells are kept in a ring of fixed capacity; the search
+ *              waits while it is full, and the viewer never waits, taking
+ *              whatever is there; once the viewer closes it, the search
+ *              fails at its next move instead of waiting forever
+ */
+public final class TourQueue implements TourSink {
+
+    // the ring of cells, the index of the first one and their number
+    private final int[] ring;
+    private int head;
+    private int count;
+
+    // the piece, the board, the cell reached by the search and whether it
+    // is done
+    private final Leaper leaper;
+    private int colSize;
+    private int row;
+    private int col;
+    private boolean ended;
+    private boolean closed;
+
+    /**
+     * Constructor with the number of cells held at most, for a tour of
+     * the knight
+     * @param capacity the capacity
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public TourQueue(int capacity) throws IllegalArgumentException {
+        this(capacity, Leaper.KNIGHT);
+    }
+
+    /**
+     * Constructor with the number of cells held at most and the piece
+     * whose moves are streamed
+     * @param capacity the capacity
+     * @param leaper the piece
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public TourQueue(int capacity, Leaper leaper)
+            throws IllegalArgumentException {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity " + capacity);
+        ring = new int[capacity];
+        this.leaper = leaper;
+    }
+
+    @Override
+    public synchronized void begin(int rowSize, int colSize, int row,
+            int col) throws IOException {
+        this.colSize = colSize;
+        this.row = row;
+        this.col = col;
+        put(row * colSize + col);
+    }
+
+    @Override
+    public synchronized void move(int move) throws IOException {
+        row += leaper.rowMove(move);
+        col += leaper.colMove(move);
+        put(row * colSize + col);
+    }
+
+    @Override
+    public synchronized void end() {
+        ended = true;
+    }
+
+    /**
+     * Method to add a cell at the end, waiting while the ring is full
+     * @param cell the cell
+     * @throws IOException if the queue is closed, or interrupted while
+     *         waiting
+     */
+    private void put(int cell) throws IOException {
+        while (count == ring.length && !closed) {
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while full");
+            }
+        }
+        if (closed)
+            throw new IOException("the queue is closed");
+        ring[(head + count) % ring.length] = cell;
+        count++;
+    }
+
+    /**
+     * Method to take the first cells, as many as there are up to a limit,
+     * without waiting
+     * @param cells the array to store the cells
+     * @param max the most cells to take
+     * @return the number of cells taken
+     */
+    public synchronized int poll(int[] cells, int max) {
+        int n = Math.min(Math.min(max, cells.length), count);
+        for (int i = 0; i < n; i++)
+            cells[i] = ring[(head + i) % ring.length];
+        head = (head + n) % ring.length;
+        count -= n;
+        if (n > 0)
+            notifyAll();
+        return n;
+    }
+
+    /**
+     * Method to return the first cell without taking it
+     * @return the cell, or -1 if there is none yet
+     */
+    public synchronized int peek() {
+        return count > 0 ? ring[head] : -1;
+    }
+
+    /**
+     * Method to check whether the whole tour has been taken
+     * @return whether the tour ended and no cell is left
+     */
+    public synchronized boolean isDrained() {
+        return ended && count == 0;
+    }
+
+    /**
+     * Method to give up the tour, dropping the cells left and failing the
+     * search streaming to it
+     */
+    public synchronized void close() {
+        closed = true;
+        count = 0;
+        notifyAll();
+    }
+}
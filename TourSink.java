@@ -0,0 +1,41 @@
+/**
+ * File: TourSink.java
+ * Description: the receiver of a tour streamed move by move
+ * @author Zhiwei Jia
+ */
+
+import java.io.IOException;
+
+/**
+ * Interface Name: TourSink
+ * Description: receives a tour as its starting cell followed by its moves,
+ *              each one an index into the moves of the Leaper touring, 
+ *              KnightTour.ROW_MOVES and COL_MOVES for the knight, so a
+ *              tour too large for the memory can be written out while it
+ *              is being built
+ */
+public interface TourSink {
+
+    /**
+     * Method to start a tour
+     * @param rowSize the number of rows of the board
+     * @param colSize the number of columns of the board
+     * @param row the row of the starting cell
+     * @param col the column of the starting cell
+     * @throws IOException if the tour cannot be written
+     */
+    void begin(int rowSize, int colSize, int row, int col) throws IOException;
+
+    /**
+     * Method to take the next move of the tour
+     * @param move the index of the move
+     * @throws IOException if the tour cannot be written
+     */
+    void move(int move) throws IOException;
+
+    /**
+     * Method to finish the tour, after its last move
+     * @throws IOException if the tour cannot be written
+     */
+    void end() throws IOException;
+}
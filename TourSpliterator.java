@@ -0,0 +1,199 @@
+/**
+ * File: TourSpliterator.java
+ * Description: a lazy and splittable sequence of all tours from a cell
+ * @author Zhiwei Jia
+ */
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Class Name: TourSpliterator
+ * Description: gives the tours from a starting cell of a board of at most
+ *              64 cells one at a time, each different from all before, by
+ *              the backtracking search of BitSearch with its prunes; the
+ *              stack of the search is kept between two tours, so the next
+ *              one costs only the search from where the last one ended
+ *
+ *              A split takes the moves not tried yet at the shallowest
+ *              depth of the stack, all of them if it is below the current
+ *              cell, or half of them if it is the current cell, so the two
+ *              parts share no tour, and the part split off, being near the
+ *              root, tends to hold many of them; tours found in different
+ *              parts differ early in the path, which suits sampling varied
+ *              tours with a parallel stream
+ */
+public final class TourSpliterator implements Spliterator<int[]> {
+
+    private final BitBoard board;
+
+    // the stack of the search: the path, the moves not tried yet from each
+    // cell of it and the cells that can only end the tour at each depth
+    private final int[] path;
+    private final long[] rest;
+    private final long[] ends;
+    private long visited;
+    private int d;
+
+    // the depth of the cell this part starts from, never backtracked
+    private final int floor;
+
+    // whether the path is already a tour not yet given
+    private boolean pending;
+
+    /**
+     * Constructor with the board and the starting cell
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param row the row of the starting cell
+     * @param col the column of the starting cell
+     * @throws IllegalArgumentException if the board has more than 64
+     *         cells, or the cell is not on it
+     */
+    public TourSpliterator(int rowSize, int colSize, int row, int col)
+            throws IllegalArgumentException {
+        this(BitBoard.of(rowSize, colSize), row, col);
+    }
+
+    /**
+     * Constructor with the bitboard of a leaper and the starting cell
+     * @param board the bitboard
+     * @param row the row of the starting cell
+     * @param col the column of the starting cell
+     * @throws IllegalArgumentException if the cell is not on the board or
+     *         blocked
+     */
+    TourSpliterator(BitBoard board, int row, int col)
+            throws IllegalArgumentException {
+        int rowSize = board.rowSize;
+        int colSize = board.colSize;
+        if (row < 0 || row >= rowSize || col < 0 || col >= colSize
+                || (board.all & 1L << row * colSize + col) == 0)
+            throw new IllegalArgumentException("no free cell (" + row + ", "
+                    + col + ") on the board of " + rowSize + "x" + colSize);
+        this.board = board;
+        path = new int[board.numCell];
+        rest = new long[board.numCell];
+        ends = new long[board.numCell];
+        floor = 0;
+        int start = row * colSize + col;
+        path[0] = start;
+        visited = 1L << start;
+        pending = board.numFree == 1;
+
+        // a knight changes color every move, so on a board of odd number
+        // of cells no tour starts on the color of fewer cells
+        if (board.isBalancedFrom(start))
+            rest[0] = board.moves(start) & ~visited;
+        ends[0] = BitSearch.endCells(board, start, visited);
+    }
+
+    /**
+     * Constructor of the part split off another one, from the path of it
+     * up to the given depth and the given moves from there
+     * @param other the part split from
+     * @param depth the depth to start from
+     * @param moves the moves to try from there
+     */
+    private TourSpliterator(TourSpliterator other, int depth, long moves) {
+        board = other.board;
+        path = new int[board.numCell];
+        rest = new long[board.numCell];
+        ends = new long[board.numCell];
+        floor = depth;
+        System.arraycopy(other.path, 0, path, 0, depth + 1);
+        System.arraycopy(other.ends, 0, ends, 0, depth + 1);
+        for (int i = 0; i <= depth; i++)
+            visited |= 1L << path[i];
+        rest[depth] = moves;
+        d = depth;
+    }
+
+    @Override
+    /**
+     * Method to find the next tour and give it to the action
+     * @param action the action, given a new array of the cells of the
+     *        tour, as row * colSize + col
+     * @return whether a tour is found, or false if there is no more
+     */
+    public boolean tryAdvance(Consumer<? super int[]> action) {
+        if (pending) {
+            pending = false;
+            action.accept(path.clone());
+            return true;
+        }
+        int numFree = board.numFree;
+        while (true) {
+            long cand = rest[d];
+            if (cand != 0) {
+
+                // step into the next candidate, in the order of the cells
+                int next = Long.numberOfTrailingZeros(cand);
+                rest[d] = cand & cand - 1;
+                visited |= 1L << next;
+                path[++d] = next;
+                if (BitSearch.doom(board, ends, path, d, visited) != null) {
+                    visited &= ~(1L << next);
+                    d--;
+                    continue;
+                }
+                rest[d] = board.moves(next) & ~visited;
+                if (d == numFree - 1) {
+                    action.accept(path.clone());
+                    return true;
+                }
+                continue;
+            }
+
+            // no more candidates, backtrack
+            if (d == floor)
+                return false;
+            visited &= ~(1L << path[d]);
+            d--;
+        }
+    }
+
+    @Override
+    /**
+     * Method to split off the moves not tried yet at the shallowest depth
+     * that has any, or half of them if it is the current cell
+     * @return the part split off, or null if there is nothing to split
+     */
+    public Spliterator<int[]> trySplit() {
+        for (int k = floor; k <= d; k++) {
+            long moves = rest[k];
+            if (k == d) {
+
+                // keep the lower half of the moves for this part
+                if (Long.bitCount(moves) < 2)
+                    return null;
+                for (int i = Long.bitCount(moves) / 2; i > 0; i--)
+                    moves &= moves - 1;
+            }
+            if (moves != 0) {
+                rest[k] &= ~moves;
+                return new TourSpliterator(this, k, moves);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    /**
+     * Method to return the number of tours left, which is unknown
+     * @return Long.MAX_VALUE
+     */
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    /**
+     * Method to return the characteristics, every tour being a new array
+     * different from all others
+     * @return the characteristics
+     */
+    public int characteristics() {
+        return DISTINCT | NONNULL | IMMUTABLE;
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * File: TourTable.java
+ * Description: a precomputed table of tours, read from a mapped file
+ * @author Zhiwei Jia
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class Name: TourTable
+ * Description: holds a tour, or the fact that there is none, for every
+ *              starting cell of some boards, generated once by main() and
+ *              memory-mapped when loaded, so a lookup takes no search;
+ *              the file is the magic "KTTB", the version and the number
+ *              of boards, then for each board its rows, its columns, the
+ *              bytes of each record and the offset of its records, then
+ *              the records; the record of a start is a byte telling
+ *              whether there is a tour, followed by its moves packed by
+ *              MoveCodec; all numbers are big-endian
+ */
+public final class TourTable {
+
+    // the name of the file generated and shipped
+    public static final String FILE_NAME = "tours.bin";
+
+    private static final int MAGIC = 0x4B54_5442;
+    private static final int VERSION = 1;
+
+    // the file mapped
+    private final ByteBuffer buf;
+
+    // where the records of each board are, by the size of the board
+    private final Map<Integer, int[]> boards = new HashMap<>();
+
+    /**
+     * Constructor with the mapped file
+     * @param buf the content of the file
+     * @throws IOException if it is not a table of tours
+     */
+    private TourTable(ByteBuffer buf) throws IOException {
+        this.buf = buf;
+        if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION)
+            throw new IOException("not a table of tours");
+        int count = buf.getInt(8);
+        for (int i = 0; i < count; i++) {
+            int at = 12 + 16 * i;
+            int rowSize = buf.getInt(at);
+            int colSize = buf.getInt(at + 4);
+            boards.put(rowSize << 16 | colSize, new int[] {
+                    buf.getInt(at + 8), buf.getInt(at + 12)});
+        }
+    }
+
+    /**
+     * Method to memory-map a table
+     * @param file the file of the table
+     * @return the table
+     * @throws IOException if the file cannot be read or is not a table
+     */
+    public static TourTable load(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0,
+                    ch.size());
+            return new TourTable(map);
+        }
+    }
+
+    /**
+     * Method to load the table shipped with the application, from the
+     * working directory or else from the class path
+     * @return the table, or null if there is none
+     */
+    public static TourTable loadDefault() {
+        try {
+            Path file = Paths.get(FILE_NAME);
+            if (!Files.isRegularFile(file)) {
+
+                // a resource in a jar cannot be mapped, so copy it out
+                InputStream in = TourTable.class.getResourceAsStream(
+                        "/" + FILE_NAME);
+                if (in == null)
+                    return null;
+                file = Files.createTempFile("tours", ".bin");
+                file.toFile().deleteOnExit();
+                try (InputStream is = in) {
+                    Files.copy(is, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            return load(file);
+        } catch (IOException ex) {
+            System.out.println("No table of tours: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Method to check whether this table covers a board
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @return whether the board is in this table
+     */
+    public boolean covers(int rowSize, int colSize) {
+        return boards.containsKey(rowSize << 16 | colSize);
+    }
+
+    /**
+     * Method to look up the tour from a starting cell
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param start the starting cell
+     * @return the tour as cell indices, or null if there is no tour
+     * @throws IllegalArgumentException if the board is not in this table
+     */
+    public int[] lookup(int rowSize, int colSize, int start)
+            throws IllegalArgumentException {
+        int[] board = boards.get(rowSize << 16 | colSize);
+        if (board == null)
+            throw new IllegalArgumentException(rowSize + "x" + colSize);
+        int at = board[1] + start * board[0];
+        if (buf.get(at) == 0)
+            return null;
+        int[] path = new int[rowSize * colSize];
+        MoveCodec.unpack(buf, at + 1, start, colSize, path);
+        return path;
+    }
+
+    /**
+     * Method to generate the table for the boards of KTSolver, which is
+     * run once offline
+     * @param args the file to write, tours.bin by default, followed by the
+     *        sizes of the square boards, 5 6 8 by default
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        String name = args.length > 0 ? args[0] : FILE_NAME;
+        int[] sizes = {5, 6, 8};
+        if (args.length > 1) {
+            sizes = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++)
+                sizes[i-1] = Integer.parseInt(args[i]);
+        }
+
+        // the directory, then the records of each board
+        int offset = 12 + 16 * sizes.length;
+        ByteBuffer head = ByteBuffer.allocate(offset);
+        head.putInt(MAGIC).putInt(VERSION).putInt(sizes.length);
+        byte[][] records = new byte[sizes.length][];
+        for (int b = 0; b < sizes.length; b++) {
+            int n = sizes[b];
+            int recordBytes = 1 + MoveCodec.packedBytes(n * n - 1);
+            head.putInt(n).putInt(n).putInt(recordBytes).putInt(offset);
+            records[b] = new byte[recordBytes * n * n];
+            int found = 0;
+            for (int start = 0; start < n * n; start++) {
+                KnightTour kt = new KnightTour(n, n);
+                if (!kt.tour(start / n, start % n))
+                    continue;
+                int[] path = kt.getTour().toArray();
+                records[b][start * recordBytes] = 1;
+                MoveCodec.pack(path, n, records[b], start * recordBytes + 1);
+                found++;
+            }
+            System.out.println(n + "x" + n + ": " + found + " of " + n * n
+                    + " starting cells have a tour");
+            offset += records[b].length;
+        }
+        try (RandomAccessFile out = new RandomAccessFile(name, "rw")) {
+            out.setLength(0);
+            out.write(head.array());
+            for (byte[] r : records)
+                out.write(r);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/**
+ * File: TourWorker.java
+ * Description: a worker process of DistributedKnightTour
+ * @author Zhiwei Jia
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.concurrent.LinkedBlockingDeque;
+
+/**
+ * Class Name: TourWorker
+ * Description: connects to a DistributedKnightTour on this machine, takes
+ *              the job and the units it is handed, and searches them one
+ *              after another on a thread of its own, by the backtracking
+ *              search of KnightTour for a tour or by the counting search
+ *              of BitSearch for all of them; another thread sends the
+ *              heartbeat with the nodes explored so far, and a unit asked
+ *              back is given back if not started yet; the process ends
+ *              once told to stop or its connection is lost
+ *
+ *              Usage: java TourWorker port
+ */
+public class TourWorker {
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    // the units handed and not started yet, in the order handed
+    private final LinkedBlockingDeque<Unit> waiting =
+            new LinkedBlockingDeque<>();
+
+    // the job, and the algorithm object searching it
+    private byte kind;
+    private KnightTour owner;
+
+    /**
+     * Constructor connecting to the coordinator
+     * @param port the port of the coordinator on the loopback interface
+     * @throws IOException if it cannot connect
+     */
+    public TourWorker(int port) throws IOException {
+        socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(
+                socket.getInputStream()));
+        out = new DataOutputStream(new BufferedOutputStream(
+                socket.getOutputStream()));
+    }
+
+    /**
+     * main method for running a worker
+     * @param args the port of the coordinator
+     * @throws IOException if it cannot connect
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java TourWorker port");
+            System.exit(1);
+        }
+        new TourWorker(Integer.parseInt(args[0])).run();
+    }
+
+    /**
+     * Method to take the job and the units until told to stop or the
+     * connection is lost
+     */
+    public void run() {
+        try {
+            if (in.readByte() != DistributedKnightTour.JOB)
+                throw new IOException("no job");
+            int rows = in.readInt();
+            int cols = in.readInt();
+            kind = in.readByte();
+            owner = new KnightTour(rows, cols);
+            start(this::search, "TourWorker-search");
+            start(this::beat, "TourWorker-heartbeat");
+
+            while (true) {
+                byte type = in.readByte();
+                if (type == DistributedKnightTour.UNIT) {
+                    int id = in.readInt();
+                    int[] prefix = new int[in.readInt()];
+                    for (int i = 0; i < prefix.length; i++)
+                        prefix[i] = in.readInt();
+                    waiting.add(new Unit(id, prefix));
+                } else if (type == DistributedKnightTour.STEAL) {
+                    int id = in.readInt();
+                    if (waiting.removeIf(u -> u.id == id))
+                        send(DistributedKnightTour.RETURNED, id, null, null);
+                } else if (type == DistributedKnightTour.STOP)
+                    break;
+                else
+                    throw new IOException("unknown message " + type);
+            }
+        } catch (IOException ex) {
+            // the coordinator is gone, so is the job
+        } finally {
+            if (owner != null)
+                owner.cancel();
+            close();
+        }
+    }
+
+    /**
+     * Method to start a daemon thread, which never keeps the process
+     * running
+     * @param task the task of the thread
+     * @param name the name of the thread
+     */
+    private static void start(Runnable task, String name) {
+        Thread t = new Thread(task, name);
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Method to search the units in the order handed, and send the result
+     * of each
+     */
+    private void search() {
+        int numCell = owner.getNumCell();
+        BitSearch counter = kind == DistributedKnightTour.COUNT
+                ? new BitSearch(owner.bitBoard(), owner) : null;
+        int[] path = new int[numCell];
+        try {
+            while (true) {
+                Unit u = waiting.take();
+                int len = u.prefix.length;
+                System.arraycopy(u.prefix, 0, path, 0, len);
+                if (counter != null) {
+                    long[] counts = new long[2];
+                    if (!counter.count(path, len, counts))
+                        return;
+                    send(DistributedKnightTour.RESULT, u.id, null, counts);
+                } else {
+                    boolean found = len == numCell || owner.extend(path, len);
+                    if (!found && owner.isCancelled())
+                        return;
+                    send(DistributedKnightTour.RESULT, u.id,
+                            found ? path : new int[0], null);
+                }
+            }
+        } catch (InterruptedException | IOException ex) {
+            close();
+        }
+    }
+
+    /**
+     * Method to send the heartbeat every HEARTBEAT_MILLIS until the
+     * connection is lost
+     */
+    private void beat() {
+        try {
+            while (true) {
+                synchronized (out) {
+                    out.writeByte(DistributedKnightTour.HEARTBEAT);
+                    out.writeLong(owner.getNodeCount());
+                    out.flush();
+                }
+                Thread.sleep(DistributedKnightTour.HEARTBEAT_MILLIS);
+            }
+        } catch (InterruptedException | IOException ex) {
+            close();
+        }
+    }
+
+    /**
+     * Method to send the result of a unit, or a unit given back
+     * @param type RESULT or RETURNED
+     * @param id the index of the unit
+     * @param tour the tour found, empty if none, when finding a tour
+     * @param counts the counts of the unit, when counting
+     * @throws IOException if it cannot be sent
+     */
+    private void send(byte type, int id, int[] tour, long[] counts)
+            throws IOException {
+        synchronized (out) {
+            out.writeByte(type);
+            out.writeInt(id);
+            if (type == DistributedKnightTour.RESULT) {
+                out.writeLong(owner.getNodeCount());
+                if (counts != null) {
+                    out.writeLong(counts[0]);
+                    out.writeLong(counts[1]);
+                } else {
+                    out.writeInt(tour.length);
+                    for (int cell : tour)
+                        out.writeInt(cell);
+                }
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Method to close the connection, which ends the process
+     */
+    private void close() {
+        try {
+            socket.close();
+        } catch (IOException ex) {
+            // closed anyway
+        }
+    }
+
+    /**
+     * Class Name: Unit
+     * Description: a unit handed, the path of its subtree and its index
+     */
+    private static final class Unit {
+
+        private final int id;
+        private final int[] prefix;
+
+        /**
+         * Constructor with the index and the path of the unit
+         * @param id the index
+         * @param prefix the path
+         */
+        Unit(int id, int[] prefix) {
+            this.id = id;
+            this.prefix = prefix;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * File: TranspositionTable.java
+ * Description: a table of the search states proven to have no tour
+ * @author Zhiwei Jia
+ */
+
+import java.util.Random;
+
+/**
+ * Class Name: TranspositionTable
+ * Description: remembers the states of the search on a BitBoard, i.e., the
+ *              cells visited and the current cell, from which no tour can
+ *              be completed, so the search never explores them again; the
+ *              states are hashed by Zobrist keys into buckets of two
+ *              entries, and a full bucket drops the entry of the smaller
+ *              subtree; the memory used is bounded by a given number of
+ *              bytes
+ */
+public final class TranspositionTable {
+
+    // the default memory used by a table
+    public static final long DEFAULT_BYTES = 8L << 20;
+
+    // the bytes of an entry: the cells visited, the current cell, and the
+    // number of free cells of the state
+    private static final int ENTRY_BYTES = 8 + 1 + 1;
+
+    // the random keys of a visited cell and of the current cell
+    private static final long[] VISITED_KEYS = new long[BitBoard.MAX_CELLS];
+    private static final long[] CURRENT_KEYS = new long[BitBoard.MAX_CELLS];
+    static {
+        Random rand = new Random(0x4B6E69676874L);
+        for (int i = 0; i < BitBoard.MAX_CELLS; i++) {
+            VISITED_KEYS[i] = rand.nextLong();
+            CURRENT_KEYS[i] = rand.nextLong();
+        }
+    }
+
+    // the entries, where a visited set of 0 marks an empty one
+    private final long[] visitedSets;
+    private final byte[] cells;
+    private final byte[] sizes;
+
+    // the index mask of the buckets
+    private final int mask;
+
+    // some statistics
+    private long hits;
+    private long misses;
+    private long stores;
+    private long evictions;
+
+    /**
+     * Constructor with the memory to use
+     * @param maxBytes the largest number of bytes of the entries
+     * @throws IllegalArgumentException if not even one bucket fits
+     */
+    public TranspositionTable(long maxBytes) throws IllegalArgumentException {
+        long entries = maxBytes / ENTRY_BYTES;
+        if (entries < 2)
+            throw new IllegalArgumentException("maxBytes " + maxBytes);
+
+        // the number of entries, a power of two no more than 2^30
+        int cap = (int) Long.highestOneBit(Math.min(entries, 1L << 30));
+        visitedSets = new long[cap];
+        cells = new byte[cap];
+        sizes = new byte[cap];
+        mask = (cap - 1) & ~1;
+    }
+
+    /**
+     * Method to return the key of the cells visited
+     * @param cell the cell visited
+     * @return the key to XOR into the hash
+     */
+    public static long visitedKey(int cell) {
+        return VISITED_KEYS[cell];
+    }
+
+    /**
+     * Method to return the key of the current cell
+     * @param cell the current cell
+     * @return the key to XOR into the hash
+     */
+    public static long currentKey(int cell) {
+        return CURRENT_KEYS[cell];
+    }
+
+    /**
+     * Method to check whether a state is known to have no tour
+     * @param hash the Zobrist hash of the state
+     * @param visited the cells visited
+     * @param cell the current cell
+     * @return whether the state is in this table
+     */
+    public boolean contains(long hash, long visited, int cell) {
+        int i = (int) hash & mask;
+        if ((visitedSets[i] == visited && cells[i] == cell)
+                || (visitedSets[i+1] == visited && cells[i+1] == cell)) {
+            hits++;
+            return true;
+        }
+        misses++;
+        return false;
+    }
+
+    /**
+     * Method to remember a state with no tour
+     * @param hash the Zobrist hash of the state
+     * @param visited the cells visited
+     * @param cell the current cell
+     * @param free the number of free cells of the state, which tells how
+     *        large its subtree is
+     */
+    public void put(long hash, long visited, int cell, int free) {
+        int i = (int) hash & mask;
+
+        // an empty entry first, otherwise the one of the smaller subtree
+        if (visitedSets[i] != 0 && (visitedSets[i+1] == 0
+                || sizes[i+1] < sizes[i]))
+            i++;
+        if (visitedSets[i] != 0)
+            evictions++;
+        visitedSets[i] = visited;
+        cells[i] = (byte) cell;
+        sizes[i] = (byte) free;
+        stores++;
+    }
+
+    /**
+     * Method to return the number of entries this table holds at most
+     * @return the capacity
+     */
+    public int capacity() {
+        return visitedSets.length;
+    }
+
+    /**
+     * Method to return the number of lookups finding their state
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Method to return the number of lookups not finding their state
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Method to return the number of states stored
+     * @return the number of stores
+     */
+    public long getStores() {
+        return stores;
+    }
+
+    /**
+     * Method to return the number of states dropped for newer ones
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    /**
+     * Method to return a String for the statistics of this table
+     * @return a String
+     */
+    public String toString() {
+        return "TranspositionTable[capacity=" + capacity() + ", hits=" + hits
+                + ", misses=" + misses + ", stores=" + stores
+                + ", evictions=" + evictions + "]";
+    }
+}
@@ -0,0 +1,348 @@
+/**
+ * File: WarnsdorffTour.java
+ * Description: finding a Knight's Tour by Warnsdorff's rule
+ * @author Zhiwei Jia
+ */
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Class Name: WarnsdorffTour
+ * Description: finds an open Knight's Tour by always moving to the cell
+ *              with the fewest onward moves, breaking ties by preferring
+ *              the cell farther from the center and then by the order of
+ *              the knight's moves; a bounded backtracking takes over at a
+ *              dead end; the rule takes linear time in the number of
+ *              cells, so it works for much larger boards; with a seed,
+ *              ties are broken at random instead of by the distance to the
+ *              center, with a new draw for every retry; the rule works the
+ *              same for any leaper
+ *
+ *              Giving up the rule does not mean there is no tour: without
+ *              a seed, the random tie-breaks are tried next, and then the
+ *              exhaustive search of KnightTour, which decides on boards of
+ *              at most EXHAUSTIVE_LIMIT free cells and is cut after
+ *              EXHAUSTIVE_NODES nodes on larger ones; a search cut so is
+ *              told by hasGivenUp(), apart from a board with no tour
+ */
+public class WarnsdorffTour extends KnightTour {
+
+    // the number of backtracks allowed for each order of the moves tried,
+    // before giving up the heuristic
+    static final int BACKTRACK_LIMIT = 1 << 13;
+
+    // the number of retries of the randomized rule
+    static final int RANDOM_RETRIES = 64;
+
+    // the largest board whose exhaustive search is not cut, and the nodes
+    // it may explore on larger ones
+    static final int EXHAUSTIVE_LIMIT = 36;
+    static final long EXHAUSTIVE_NODES = 1L << 24;
+
+    // the bits of a ranking key holding the distance to the center
+    private static final long DISTANCE_MASK = (1L << 53) - 1;
+
+    // the first order of the moves tried, and the seed of the random
+    // tie-breaks, 0 for none
+    private final int firstRotation;
+    private final long seed;
+
+    // whether the exhaustive search follows the rule giving up, and the
+    // node count at which it is cut, if it is running
+    private boolean exhaustive = true;
+    private volatile long nodeLimit = Long.MAX_VALUE;
+
+    // the random tie-break of every cell in the current retry, or null
+    private long[] tieBreak;
+
+    // the candidates being ranked and their ranking keys
+    private final int[] cand = new int[8];
+    private final long[] key = new long[8];
+
+    /**
+     * Constructor with the size of the board
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     */
+    public WarnsdorffTour(int rowSize, int colSize) {
+        this(rowSize, colSize, 0, 0);
+    }
+
+    /**
+     * Constructor with the size of the board and the piece
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param leaper the piece touring the board
+     */
+    public WarnsdorffTour(int rowSize, int colSize, Leaper leaper) {
+        this(rowSize, colSize, leaper, null);
+    }
+
+    /**
+     * Constructor with the size of the board, the piece and the cells
+     * blocked
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param leaper the piece touring the board
+     * @param blocked the cells blocked, as row * colSize + col, or null
+     *        for none
+     * @throws IllegalArgumentException if a cell blocked is not on the
+     *         board
+     */
+    public WarnsdorffTour(int rowSize, int colSize, Leaper leaper,
+            BitSet blocked) throws IllegalArgumentException {
+        super(rowSize, colSize, leaper, blocked);
+        this.firstRotation = 0;
+        this.seed = 0;
+    }
+
+    /**
+     * Constructor with the size of the board and the tie-breaks
+     * @param rowSize the number of rows
+     * @param colSize the number of columns
+     * @param firstRotation the first move in the order of the moves tried
+     *        first, from 0 to 7
+     * @param seed the seed of the random tie-breaks, or 0 to prefer the
+     *        cells farther from the center
+     */
+    public WarnsdorffTour(int rowSize, int colSize, int firstRotation,
+            long seed) {
+        super(rowSize, colSize);
+        this.firstRotation = firstRotation & 7;
+        this.seed = seed;
+    }
+
+    @Override
+    /**
+     * Method to find a full path by Warnsdorff's rule
+     * @param path the array to store the path, with the starting cell
+     *        placed at its index 0
+     * @return whether a full path is found
+     */
+    protected boolean findPath(int[] path) {
+        Random random = seed != 0 ? new Random(seed) : null;
+        int result = retry(path, random, random != null ? RANDOM_RETRIES : 8);
+
+        // the distance to the center misleads the rule on some boards, such
+        // as thin ones, where random tie-breaks may still do
+        if (result == 0 && random == null && !shouldStop()) {
+            result = retry(path, new Random(path[0] + 1L), RANDOM_RETRIES);
+            tieBreak = null;
+        }
+        if (result != 0 || shouldStop())
+            return result > 0;
+        if (!exhaustive) {
+            giveUp();
+            return false;
+        }
+
+        // the heuristic gave up, let the exhaustive search decide, within
+        // a budget of nodes on a large board
+        if (numFree > EXHAUSTIVE_LIMIT)
+            nodeLimit = getNodeCount() + EXHAUSTIVE_NODES;
+        try {
+            boolean found = super.findPath(path);
+            if (!found && !isCancelled() && getNodeCount() >= nodeLimit)
+                giveUp();
+            return found;
+        } finally {
+            nodeLimit = Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Method to set whether the exhaustive search follows the rule giving
+     * up, as with a racing backtracking search it is only repeated
+     * @param exhaustive whether it does
+     */
+    void setExhaustive(boolean exhaustive) {
+        this.exhaustive = exhaustive;
+    }
+
+    @Override
+    /**
+     * Method to check whether the search should stop now, which is also
+     * when the exhaustive search has used up its nodes
+     * @return whether to stop
+     */
+    protected boolean shouldStop() {
+        return super.shouldStop() || getNodeCount() >= nodeLimit;
+    }
+
+    /**
+     * Method to run the rule with the order of the moves rotated for every
+     * retry, and the random tie-breaks, if any, drawn again
+     * @param path the array to store the path, with the starting cell
+     *        placed at its index 0
+     * @param random the random tie-breaks, or null for the distance to the
+     *        center
+     * @param retries the number of retries
+     * @return 1 if a full path is found, -1 if there is surely no such
+     *         path, or 0 if the rule gave up
+     */
+    private int retry(int[] path, Random random, int retries) {
+        for (int retry = 0; retry < retries; retry++) {
+            if (random != null) {
+                tieBreak = new long[numCell];
+                for (int cell = 0; cell < numCell; cell++)
+                    tieBreak[cell] = random.nextLong() & DISTANCE_MASK;
+            }
+            int result = warnsdorff(path, (firstRotation + retry) & 7);
+            if (result != 0 || shouldStop())
+                return result;
+        }
+        return 0;
+    }
+
+    /**
+     * Method to run Warnsdorff's rule with a bounded backtracking
+     * @param path the array to store the path, with the starting cell
+     *        placed at its index 0
+     * @param rotate the first move in the order of the moves
+     * @return 1 if a full path is found, -1 if there is surely no such
+     *         path, or 0 if the backtracking has been used up
+     */
+    private int warnsdorff(int[] path, int rotate) {
+
+        // the onward degree of every cell, kept up to date while moving
+        MoveGraph g = graph();
+        boolean[] visited = new boolean[numCell];
+        byte[] degree = new byte[numCell];
+        for (int cell = 0; cell < numCell; cell++)
+            degree[cell] = (byte) g.degree(cell);
+
+        // which of the ranked candidates has been taken at each depth
+        byte[] rank = new byte[numCell];
+
+        SearchStats s = new SearchStats(numCell);
+        int backtracks = 0;
+        int d = 0;
+        visit(g, path[0], visited, degree);
+        rank[0] = -1;
+        while (d < numFree - 1) {
+            if ((++s.nodes & (CHECK_INTERVAL - 1)) == 0) {
+                report(s, d + 1);
+                if (shouldStop())
+                    return 0;
+            }
+
+            // take the candidate after the one taken last time
+            int next = candidate(g, path[d], rank[d] + 1, visited, degree,
+                    rotate);
+            if (next >= 0) {
+                rank[d]++;
+                visit(g, next, visited, degree);
+                path[++d] = next;
+                if (d + 1 > s.maxDepth)
+                    s.maxDepth = d + 1;
+                rank[d] = -1;
+            } else {
+
+                // a dead end, backtrack if still allowed
+                s.backtrack(d + 1);
+                if (d == 0 || ++backtracks > BACKTRACK_LIMIT) {
+                    report(s, d + 1);
+                    return d == 0 ? -1 : 0;
+                }
+                unvisit(g, path[d], visited, degree);
+                d--;
+            }
+        }
+        report(s, numFree);
+        return 1;
+    }
+
+    /**
+     * Method to find the candidate of the given rank among the free
+     * neighbors of a cell, ranked by Warnsdorff's rule; the ranking only
+     * depends on the cells visited, so it is the same after backtracking
+     * @param g the graph of the moves
+     * @param cell the cell
+     * @param k the rank wanted, starting from 0
+     * @param visited the cells visited
+     * @param degree the onward degrees
+     * @param rotate the first move in the order of the moves
+     * @return the candidate, or -1 if there are not so many candidates
+     */
+    private int candidate(MoveGraph g, int cell, int k, boolean[] visited,
+            byte[] degree, int rotate) {
+        int count = 0;
+        for (int e = g.first[cell], end = g.first[cell + 1]; e < end; e++) {
+            int next = g.next[e];
+            if (visited[next])
+                continue;
+
+            // fewer onward moves first, then farther from the center or
+            // the random tie-break, then the order of the moves
+            long tie = tieBreak != null ? tieBreak[next]
+                    : DISTANCE_MASK - centerDistance(next / colSize,
+                            next % colSize);
+            long k0 = (long) degree[next] << 56 | tie << 3
+                    | (g.move[e] - rotate) & 7;
+            int i = count++;
+            while (i > 0 && key[i-1] > k0) {
+                cand[i] = cand[i-1];
+                key[i] = key[i-1];
+                i--;
+            }
+            cand[i] = next;
+            key[i] = k0;
+        }
+        return k < count ? cand[k] : -1;
+    }
+
+    /**
+     * Method to return the squared distance from a cell to the center,
+     * doubled in both directions to keep it an integer
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the distance
+     */
+    private long centerDistance(int row, int col) {
+        long dr = 2L * row - (rowSize - 1);
+        long dc = 2L * col - (colSize - 1);
+        return dr * dr + dc * dc;
+    }
+
+    /**
+     * Method to mark a cell visited, and update the degrees of its
+     * neighbors
+     * @param g the graph of the moves
+     * @param cell the cell
+     * @param visited the cells visited
+     * @param degree the onward degrees
+     */
+    private static void visit(MoveGraph g, int cell, boolean[] visited,
+            byte[] degree) {
+        visited[cell] = true;
+        updateNeighbors(g, cell, degree, -1);
+    }
+
+    /**
+     * Method to mark a cell not visited, and update the degrees of its
+     * neighbors
+     * @param g the graph of the moves
+     * @param cell the cell
+     * @param visited the cells visited
+     * @param degree the onward degrees
+     */
+    private static void unvisit(MoveGraph g, int cell, boolean[] visited,
+            byte[] degree) {
+        visited[cell] = false;
+        updateNeighbors(g, cell, degree, 1);
+    }
+
+    /**
+     * Method to add a value to the degrees of all neighbors of a cell
+     * @param g the graph of the moves
+     * @param cell the cell
+     * @param degree the onward degrees
+     * @param delta the value to add
+     */
+    private static void updateNeighbors(MoveGraph g, int cell, byte[] degree,
+            int delta) {
+        for (int e = g.first[cell], end = g.first[cell + 1]; e < end; e++)
+            degree[g.next[e]] += delta;
+    }
+}